@@ -0,0 +1,51 @@
+/* Class BackoffLockStrategy
+   Lock strategy that retries tryLock after exponentially growing, randomly jittered sleeps.
+   Short first sleeps pick up a quickly freed lock with little latency, while longer later sleeps
+   (capped at maxDelay) keep many waiting processes from hammering the file with tryLock calls,
+   and the jitter keeps them from all retrying at the same moment.
+*/
+
+package util;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class BackoffLockStrategy implements LockStrategy {
+
+    private final long initialDelay;   // millisecs of first sleep
+    private final long maxDelay;       // longest sleep in millisecs
+
+    public BackoffLockStrategy(long initialDelay, long maxDelay) {
+        if (initialDelay <= 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("Bad backoff delays " + initialDelay + ", " + maxDelay);
+        }
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public FileLock acquire(FileChannel fc, long position, long size, boolean shared, long timeout)
+                            throws InterruptedException, IOException {
+        FileLock fl = fc.tryLock(position, size, shared);  // throws IOException
+        if (fl != null || timeout <= 0) return fl;
+        long deadline = System.nanoTime() + timeout * 1000000L;
+        long delay = initialDelay;
+        while (true) {
+            long remaining = (deadline - System.nanoTime()) / 1000000L;
+            if (remaining <= 0) return null;
+            // sleep between half and all of delay, but never past the deadline
+            long sleep = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+            Thread.sleep(Math.max(1, Math.min(sleep, remaining)));  // throws interruptedException
+            fl = fc.tryLock(position, size, shared);
+            if (fl != null) return fl;
+            delay = Math.min(maxDelay, delay * 2);
+        } // end while
+    } // end acquire
+
+    @Override
+    public String toString() {
+        return "Backoff(" + initialDelay + "-" + maxDelay + " ms)";
+    }
+
+}  // end class BackoffLockStrategy
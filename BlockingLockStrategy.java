@@ -0,0 +1,127 @@
+/* Class BlockingLockStrategy
+   Lock strategy that waits in FileChannel.lock, so the lock is taken as soon as the operating
+   system frees it with no polling at all.  lock() has no timeout, so it runs on a daemon helper
+   thread while the caller waits up to the timeout.
+   FileChannel.lock can only be abandoned by interrupting it, which closes the channel.  So if the
+   timeout passes (or the caller is interrupted) the channel is closed and null is returned - the
+   caller must not use the channel after that, just as it would close it after any failed lock.
+   So it refuses FileLockCoordinator's shared channels: closing one would drop every lock the JVM
+   holds on that file (including ones other threads hold, and the caller's own header lock), and
+   waiting on a channel of its own would be no better, as closing that drops them too.  Use it only
+   on channels the caller owns, passed to each call - MyTryLock wont take it as its default strategy,
+   which locks coordinated files.  For those use the polling or backoff strategies.
+*/
+
+package util;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public class BlockingLockStrategy implements LockStrategy {
+
+    // helper threads are daemons so a stuck lock() never keeps the application running
+    private static final ExecutorService LOCKERS = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "BlockingLockStrategy-locker");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    @Override
+    public FileLock acquire(FileChannel fc, long position, long size, boolean shared, long timeout)
+                            throws InterruptedException, IOException {
+        if (FileLockCoordinator.isShared(fc)) {
+            throw new IllegalArgumentException("BlockingLockStrategy can't lock a FileLockCoordinator channel - "
+                                               + "a timeout would close it under every lock on the file.");
+        }
+        FileLock fl = fc.tryLock(position, size, shared);  // throws IOException
+        if (fl != null || timeout <= 0) return fl;
+
+        final PendingLock pending = new PendingLock();
+        LOCKERS.execute(new Runnable() {
+            @Override
+            public void run() {
+                pending.lockWith(fc, position, size, shared);
+            }
+        });
+        return pending.await(timeout);
+    } // end acquire
+
+    @Override
+    public String toString() {
+        return "Blocking";
+    }
+
+
+    // ------------ PendingLock class - handoff between helper thread and caller ---------------
+    private static class PendingLock {
+        private Thread locker;          // helper thread, while in lock()
+        private FileLock lock;
+        private IOException failure;
+        private boolean done;           // helper finished, with lock or failure
+        private boolean abandoned;      // caller gave up waiting
+
+        // run on helper thread
+        void lockWith(FileChannel fc, long position, long size, boolean shared) {
+            synchronized (this) {
+                if (abandoned) return;
+                locker = Thread.currentThread();
+            }
+            FileLock fl = null;
+            IOException e = null;
+            try {
+                fl = fc.lock(position, size, shared);
+            } catch (IOException ex) {
+                e = ex;   // including ClosedByInterruptException when abandoned
+            }
+            synchronized (this) {
+                locker = null;
+                Thread.interrupted();   // dont leave an interrupt on the pool thread
+                if (abandoned && fl != null) {
+                    try {
+                        fl.release();   // caller has gone, so give the lock back
+                    } catch (IOException ex) {
+                        // channel closing will release it anyway
+                    }
+                    fl = null;
+                }
+                lock = fl;
+                failure = e;
+                done = true;
+                notifyAll();
+            }
+        } // end lockWith
+
+        // run on caller thread
+        synchronized FileLock await(long timeout) throws InterruptedException, IOException {
+            long deadline = System.nanoTime() + timeout * 1000000L;
+            try {
+                long remaining = timeout;
+                while (!done && remaining > 0) {
+                    wait(remaining);
+                    remaining = (deadline - System.nanoTime()) / 1000000L;
+                }
+            } catch (InterruptedException e) {
+                abandon();
+                throw e;
+            }
+            if (!done) {
+                abandon();
+                return null;
+            }
+            if (failure != null) throw failure;
+            return lock;
+        } // end await
+
+        private void abandon() {
+            abandoned = true;
+            if (locker != null) locker.interrupt();   // closes the channel, ending lock()
+        }
+    } // end class PendingLock
+
+}  // end class BlockingLockStrategy
@@ -0,0 +1,192 @@
+/* Class FileLockCoordinator
+   FileLocks are held per process, so two threads of one JVM locking the same file get an
+   OverlappingFileLockException rather than waiting.  This class gives out one shared FileChannel
+   per canonical file path, and a fair in-JVM lock per file that threads queue on first.  Only the
+   thread holding the in-JVM lock goes on to take FileLocks on the shared channel, so threads of
+   one JVM wait their turn in microseconds and only processes contend for the OS lock.
+   Usage:
+       try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, timeout);
+            FileLock fl = (handle == null) ? null : MyTryLock.myTryLock(handle.channel(), timeout)) {
+   The shared channel must not be closed by its users (so no Channels.newInputStream etc. on it).
+   Nor may a strategy that closes the channel to give up a wait (BlockingLockStrategy) lock it -
+   isShared lets strategies tell.
+   A turn is not tied to a thread - it can be given up by another thread (as async callbacks do), but
+   a thread already holding a file's turn must not ask for it again.
+   A file replaced by a rename (as snapshot mode publishes) is a new inode - the cached channel would
+   still read and write the old, unlinked one.  So each turn compares the path's file key with the one
+   the channel was opened on, and reopens the channel if they differ.  No FileLock is held on the
+   channel between turns, so closing the old one drops none.
+*/
+
+package util;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class FileLockCoordinator {
+
+    private static final ConcurrentMap<String, SharedFile> FILES = new ConcurrentHashMap<>();
+    private static final Set<FileChannel> CHANNELS = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    // Wait up to timeout millisecs for this JVMs turn at file. Returns null if timed out.
+    public static Handle lock(File file, long timeout) throws InterruptedException, IOException {
+        SharedFile shared = getSharedFile(file);
+        if (!shared.jvmLock.tryAcquire(Math.max(0, timeout), TimeUnit.MILLISECONDS)) return null;
+        return newHandle(shared);
+    } // end lock
+
+    // This JVMs turn at file if no other thread has it, otherwise null at once - for callers that cant wait.
+    public static Handle tryLock(File file) throws IOException {
+        SharedFile shared = getSharedFile(file);
+        if (!shared.jvmLock.tryAcquire()) return null;
+        return newHandle(shared);
+    } // end tryLock
+
+    private static SharedFile getSharedFile(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        SharedFile shared = FILES.get(path);
+        if (shared == null) {
+            SharedFile newShared = new SharedFile(new File(path));
+            shared = FILES.putIfAbsent(path, newShared);
+            if (shared == null) shared = newShared;
+        }
+        return shared;
+    } // end getSharedFile
+
+    private static Handle newHandle(SharedFile shared) throws IOException {
+        try {
+            return new Handle(shared, shared.openChannel());
+        } catch (IOException e) {
+            shared.jvmLock.release();
+            throw e;
+        }
+    } // end newHandle
+
+    // Close all shared channels (when no thread holds a handle) - for application shutdown.
+    public static void closeAll() throws IOException {
+        for (SharedFile shared: FILES.values()) {
+            shared.jvmLock.acquireUninterruptibly();
+            try {
+                shared.closeChannel();
+            } finally {
+                shared.jvmLock.release();
+            }
+        }
+    } // end closeAll
+
+    // true if fc is a shared channel given out by this class - closing it would drop every lock on its file
+    public static boolean isShared(FileChannel fc) {
+        return CHANNELS.contains(fc);
+    } // end isShared
+
+    // number of threads waiting for this JVMs turn at file
+    public static int getQueueLength(File file) throws IOException {
+        SharedFile shared = FILES.get(file.getCanonicalPath());
+        return (shared == null) ? 0 : shared.jvmLock.getQueueLength();
+    } // end getQueueLength
+
+
+    // ------------ Handle class - a turn at a file, until closed -------------------
+    public static class Handle implements AutoCloseable {
+        private final SharedFile shared;
+        private final FileChannel channel;
+        private volatile boolean closed = false;
+
+        private Handle(SharedFile shared, FileChannel channel) {
+            this.shared = shared;
+            this.channel = channel;
+        }
+
+        // shared channel of the file - lock, read and write it, but dont close it.
+        public FileChannel channel() {
+            return channel;
+        }
+
+        public File getFile() {
+            return shared.file;
+        }
+
+        // Give up this turn.  FileLocks taken on the channel must be released first.
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            shared.jvmLock.release();
+        }
+    } // end class Handle
+
+
+    // ------------ SharedFile class - channel and in-JVM lock of one file ---------------------
+    private static class SharedFile {
+        final File file;
+        final Semaphore jvmLock = new Semaphore(1, true);   // fair => first come first served
+        FileChannel channel;                                 // guarded by jvmLock
+        Object fileKey;                                      // inode channel was opened on, null => unknown
+
+        SharedFile(File file) {
+            this.file = file;
+        }
+
+        // channel, reopened if it was closed, never opened, or the file was replaced since.
+        FileChannel openChannel() throws IOException {
+            if (channel != null && channel.isOpen() && !isReplaced()) return channel;
+            closeChannel();
+            while (true) {
+                Object before = currentFileKey();
+                RandomAccessFile raf;
+                try {
+                    raf = new RandomAccessFile(file, "rw");
+                } catch (FileNotFoundException e) {
+                    if (!file.exists()) throw e;
+                    raf = new RandomAccessFile(file, "r");   // read only file - shared locks only
+                }
+                Object after = currentFileKey();
+                // renamed over while opening => cant tell which inode was opened, so open it again
+                if (before != null && !before.equals(after)) {
+                    raf.close();
+                    continue;
+                }
+                channel = raf.getChannel();
+                fileKey = after;
+                CHANNELS.add(channel);
+                return channel;
+            } // end while opening
+        }
+
+        // true if the path now names another file than the one channel was opened on
+        private boolean isReplaced() throws IOException {
+            if (fileKey == null) return false;   // platform has no file keys - cant tell
+            return !fileKey.equals(currentFileKey());
+        }
+
+        // file key (device and inode) of the file at the path now, null if there is none
+        private Object currentFileKey() throws IOException {
+            try {
+                return Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        void closeChannel() throws IOException {
+            if (channel != null) {
+                CHANNELS.remove(channel);
+                channel.close();
+            }
+            channel = null;
+            fileKey = null;
+        }
+    } // end class SharedFile
+
+}  // end class FileLockCoordinator
@@ -0,0 +1,66 @@
+/* Class FlightEvents
+   Java Flight Recorder events of the high score code: lock waits (MyTryLock), reads and writes of
+   high score files, and lines that would not parse.  The events themselves are in JfrFlightEvents,
+   which needs jdk.jfr (Java 11 on), so it is loaded only if it can be - otherwise this class, which
+   does nothing, is used.  Callers do:
+       Object event = FlightEvents.get().beginRead();
+       ... read ...
+       if (event != null) FlightEvents.get().commitRead(event, ...);
+   begin methods return null unless the event is enabled in the running recording, so with no
+   recording (or no JFR) the cost is a call the JIT inlines away, and no event fields are worked out.
+   Enable the events with the jfr/highscores.jfc settings profile.
+*/
+
+package util;
+
+public class FlightEvents {
+
+    static final String JFR_EVENTS = "util.JfrFlightEvents";
+
+    private static final FlightEvents EVENTS = load();
+
+    public static FlightEvents get() {
+        return EVENTS;
+    }
+
+    private static FlightEvents load() {
+        try {
+            return (FlightEvents) Class.forName(JFR_EVENTS).getDeclaredConstructor().newInstance();
+        } catch (Exception | LinkageError e) {   // no jdk.jfr, or too old a Java for it
+            return new FlightEvents();
+        }
+    }
+
+    // ----------- events - no-ops here, JfrFlightEvents overrides them ---------------
+
+    // Start timing a lock wait - null if the event isnt recorded.
+    public Object beginLockWait() {
+        return null;
+    }
+
+    // attempts - calls to the lock strategy; outcome - acquired, timed out or channel closed
+    public void commitLockWait(Object event, long position, long size, boolean shared, long timeoutMillis,
+                               int attempts, String outcome) {
+    }
+
+    public Object beginRead() {
+        return null;
+    }
+
+    // source - file read, or how it was read if not known; bytes -1 if not known
+    public void commitRead(Object event, String source, int records, long bytes) {
+    }
+
+    public Object beginWrite() {
+        return null;
+    }
+
+    // target - file written, or how if not known; records -1 if not known
+    public void commitWrite(Object event, String target, int records, long bytes) {
+    }
+
+    // A line that would not parse - recorded at once.
+    public void parseError(String line, String message) {
+    }
+
+}  // end class FlightEvents
@@ -0,0 +1,161 @@
+/* Class JfrFlightEvents
+   The jdk.jfr events behind FlightEvents.  Compiled for Java 11 (where jdk.jfr is standard) apart
+   from the rest of util, and only ever loaded by FlightEvents, so the other classes still run on
+   Java 8.  Each begin method creates its event and begins it only if it is enabled - a disabled
+   event is never begun, and the JIT can drop the allocation.
+*/
+
+package util;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class JfrFlightEvents extends FlightEvents {
+
+    @Override
+    public Object beginLockWait() {
+        LockWaitEvent event = new LockWaitEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitLockWait(Object event, long position, long size, boolean shared, long timeoutMillis,
+                               int attempts, String outcome) {
+        LockWaitEvent lockWait = (LockWaitEvent) event;
+        lockWait.end();
+        if (!lockWait.shouldCommit()) return;   // under the threshold
+        lockWait.position = position;
+        lockWait.size = size;
+        lockWait.shared = shared;
+        lockWait.timeout = timeoutMillis;
+        lockWait.attempts = attempts;
+        lockWait.outcome = outcome;
+        lockWait.commit();
+    }
+
+    @Override
+    public Object beginRead() {
+        ReadEvent event = new ReadEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitRead(Object event, String source, int records, long bytes) {
+        ReadEvent read = (ReadEvent) event;
+        read.end();
+        if (!read.shouldCommit()) return;
+        read.source = source;
+        read.records = records;
+        read.bytes = bytes;
+        read.commit();
+    }
+
+    @Override
+    public Object beginWrite() {
+        WriteEvent event = new WriteEvent();
+        if (!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitWrite(Object event, String target, int records, long bytes) {
+        WriteEvent write = (WriteEvent) event;
+        write.end();
+        if (!write.shouldCommit()) return;
+        write.target = target;
+        write.records = records;
+        write.bytes = bytes;
+        write.commit();
+    }
+
+    @Override
+    public void parseError(String line, String message) {
+        ParseErrorEvent event = new ParseErrorEvent();
+        if (!event.shouldCommit()) return;
+        event.line = line;
+        event.message = message;
+        event.commit();
+    }
+
+
+    // ------------ the events ----------------------------------------------------------------
+    @Name("highscores.LockWait")
+    @Label("High Score Lock Wait")
+    @Category("High Scores")
+    @Description("Wait for a file lock in MyTryLock")
+    static class LockWaitEvent extends Event {
+        @Label("Position")
+        long position;
+
+        @Label("Size")
+        long size;
+
+        @Label("Shared")
+        boolean shared;
+
+        @Label("Timeout")
+        @Timespan(Timespan.MILLISECONDS)
+        long timeout;
+
+        @Label("Attempts")
+        @Description("Calls to the lock strategy - the first is a single tryLock")
+        int attempts;
+
+        @Label("Outcome")
+        String outcome;
+    } // end class LockWaitEvent
+
+    @Name("highscores.Read")
+    @Label("High Score Read")
+    @Category("High Scores")
+    @Description("High scores read and parsed")
+    static class ReadEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Records")
+        int records;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    } // end class ReadEvent
+
+    @Name("highscores.Write")
+    @Label("High Score Write")
+    @Category("High Scores")
+    @Description("High scores written")
+    static class WriteEvent extends Event {
+        @Label("Target")
+        String target;
+
+        @Label("Records")
+        int records;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    } // end class WriteEvent
+
+    @Name("highscores.ParseError")
+    @Label("High Score Parse Error")
+    @Category("High Scores")
+    @Description("High score line that would not parse")
+    static class ParseErrorEvent extends Event {
+        @Label("Line")
+        String line;
+
+        @Label("Message")
+        String message;
+    } // end class ParseErrorEvent
+
+}  // end class JfrFlightEvents
@@ -0,0 +1,26 @@
+/* Interface LockStrategy
+   How to wait for a FileLock on a FileChannel region.  Strategies never interact with the user,
+   so they can run headless - MyTryLock does any asking of the user between calls to a strategy.
+   Built in strategies: PollingLockStrategy (tryLock every tick, as MyTryLock always has),
+   BackoffLockStrategy (exponential backoff with jitter) and BlockingLockStrategy (FileChannel.lock
+   on a helper thread, with a timeout - only for channels the caller owns, not FileLockCoordinator's).
+*/
+
+package util;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+public interface LockStrategy {
+
+    // Lock size bytes of fc starting at position, shared or exclusive, waiting up to timeout
+    // millisecs (0 => try just once). Returns null if the lock could not be acquired in time.
+    FileLock acquire(FileChannel fc, long position, long size, boolean shared, long timeout)
+                     throws InterruptedException, IOException;
+
+    // Exclusive lock of the whole file.
+    default FileLock acquire(FileChannel fc, long timeout) throws InterruptedException, IOException {
+        return acquire(fc, 0L, Long.MAX_VALUE, false, timeout);
+    }
+
+}  // end interface LockStrategy
@@ -9,6 +9,9 @@
    The other 3 overloaded methods call the full parameter method with default values.
    Ideally this would extend nio.channels.FileChannel, but since FileChannel is abstract
    and has around 30 methods, this would take quite a bit of doing.
+   How to wait for the lock is up to a LockStrategy (polling every TICK_TIME by default), so
+   only the asking of the user happens here and strategies can also be used headless.
+   Each wait is a JFR lock wait event when recorded (see FlightEvents).
    New Line in Unicorn Branch
    New Line2 in Unicorn Branch
    Conflicting Line in Master
@@ -23,6 +26,24 @@ public class MyTryLock {
 
     static final int TICK_TIME = 50;  // divide total wait time into chunks of this amount in millisecs
 
+    // how all myTryLock calls wait, unless given a strategy
+    private static volatile LockStrategy defaultStrategy = new PollingLockStrategy(TICK_TIME);
+
+    public static LockStrategy getDefaultStrategy() {
+        return defaultStrategy;
+    }
+
+    // The default locks FileLockCoordinator's shared channels (high score files, journals, reservations,
+    // rank logs), which BlockingLockStrategy refuses - so it can only be passed to calls explicitly.
+    public static void setDefaultStrategy(LockStrategy strategy) {
+        if (strategy == null) throw new NullPointerException("Lock strategy cant be null.");
+        if (strategy instanceof BlockingLockStrategy) {
+            throw new IllegalArgumentException("BlockingLockStrategy can't be the default - it can't lock "
+                                               + "FileLockCoordinator channels.");
+        }
+        defaultStrategy = strategy;
+    }
+
     // Method expands on tryLock method from fileChannels - adds timeout time if we should keep
     // trying, and queryUser to see if user should be queried after timeout time, msg to 
     // display to ask if to wait further, and resetWaitTime boolean if method should ask user 
@@ -34,27 +55,48 @@ public class MyTryLock {
     // queryUser - true => ask user if they wish to continue waiting
     // msg - message to display when asking if user if they wish to continue
     // resetWaitTime - true => ask user how long to wait in future.
+        return myTryLock(fc, 0L, Long.MAX_VALUE, false, timeout, queryUser, msg, resetWaitTime);
+    } // end myTryLock 
+
+    // Region version of the full parameter method - locks size bytes from position, shared or not.
+    public static FileLock myTryLock(FileChannel fc, long position, long size, boolean shared, int timeout, 
+           boolean queryUser, String msg, boolean resetWaitTime) throws InterruptedException, IOException {
 
     // System.out.println("Starting MyTryLock. - msg: " + msg);
-    FileLock fl = fc.tryLock();  // throws IOException
-    if (fl != null) return fl;
-    int waitLoops;
+    LockStrategy strategy = defaultStrategy;
+    Object event = FlightEvents.get().beginLockWait();   // null unless being recorded
+    FileLock fl = strategy.acquire(fc, position, size, shared, 0);  // just a tryLock - throws IOException
+    int attempts = 1;
 
-    String timeString = null;
-    int newTime = 0;
     int waitTime = timeout;  // in milliSeconds
-
-    boolean done = (waitTime <= 0);  // exit if no timeout since we just did a tryLock
+    boolean done = (fl != null || waitTime <= 0);  // exit if no timeout since we just did a tryLock
     while (!done) {
         // System.out.println("My try lock. Could not acquire lock. Waiting millisecs: " + waitTime);
-        waitLoops = waitTime / TICK_TIME + 1;  
-        for (int i = 1; i <= waitLoops; i++)  { 
-            Thread.sleep((long) TICK_TIME);  // throws interruptedException
-            fl = fc.tryLock();
-            if (fl != null) return fl;
-        } // end for waitLoops
-
-        if (!queryUser) return null;
+        fl = strategy.acquire(fc, position, size, shared, waitTime);
+        attempts++;
+
+        // strategies that cant abandon a wait (BlockingLockStrategy) close the channel
+        done = (fl != null || !queryUser || !fc.isOpen());
+        if (!done) {
+            waitTime = askToKeepWaiting(waitTime, msg, resetWaitTime);
+            done = (waitTime < 0);
+        }
+    } // end while !done
+    if (event != null) commitLockWait(event, fc, position, size, shared, timeout, attempts, fl);
+    return fl;
+    } // end myTryLock 
+
+    private static void commitLockWait(Object event, FileChannel fc, long position, long size, boolean shared,
+                                       long timeout, int attempts, FileLock fl) {
+        String outcome = (fl != null) ? "acquired" : fc.isOpen() ? "timed out" : "channel closed";
+        FlightEvents.get().commitLockWait(event, position, size, shared, timeout, attempts, outcome);
+    } // end commitLockWait
+
+    // Ask user if they wish to keep waiting for a busy file (and possibly for how long).
+    // Returns the millisecs to keep waiting, or -1 to stop waiting.
+    private static int askToKeepWaiting(int waitTime, String msg, boolean resetWaitTime) {
+        String timeString = null;
+        int newTime = 0;
         if (waitTime > 2000) {
             timeString = "" + waitTime/1000 + " seconds";
         } else {
@@ -65,7 +107,7 @@ public class MyTryLock {
         int options = JOptionPane.YES_NO_OPTION;
         int dialogAnswer = JOptionPane.showConfirmDialog(null, prompt, title, options);
         if (dialogAnswer != JOptionPane.YES_OPTION) {
-            return null;
+            return -1;
         } else if (resetWaitTime) {
             timeString = JOptionPane.showInputDialog("Keep waiting for how many milliseconds?");
             try {
@@ -74,10 +116,28 @@ public class MyTryLock {
                 newTime = waitTime;
             }
             newTime = (newTime < 0) ? 0 : newTime;
-            waitTime = newTime; 
+            return newTime;
         } // end if-else
-    } // end while !done
-    return fl;
+        return waitTime;
+    } // end askToKeepWaiting
+
+    // Headless version - wait for a lock on a region of fc using strategy, never asking the user.
+    public static FileLock myTryLock(FileChannel fc, LockStrategy strategy, long position, long size, 
+                                     boolean shared, long timeout) throws InterruptedException, IOException {
+    // fc - fileChannel used to access fileLock
+    // strategy - how to wait for the lock
+    // position, size, shared - region of file to lock, and if lock is shared (read) or exclusive
+    // timeout - total amount of time to wait if region is already locked
+        Object event = FlightEvents.get().beginLockWait();
+        FileLock fl = strategy.acquire(fc, position, size, shared, timeout);
+        if (event != null) commitLockWait(event, fc, position, size, shared, timeout, 1, fl);
+        return fl;
+    } // end myTryLock 
+
+    public static FileLock myTryLock(FileChannel fc, LockStrategy strategy, long timeout) 
+                                     throws InterruptedException, IOException {
+    // headless exclusive lock of the whole file
+        return myTryLock(fc, strategy, 0L, Long.MAX_VALUE, false, timeout); 
     } // end myTryLock 
 
     public static FileLock myTryLock(FileChannel fc, int timeout, boolean queryUser, String msg) 
@@ -0,0 +1,44 @@
+/* Class PollingLockStrategy
+   Lock strategy that calls tryLock, then sleeps a fixed tick time between further tryLocks until
+   the timeout is used up.  This is how MyTryLock has always waited (50 millisec ticks).
+   Simple, but can add up to a tick of latency after the lock is freed.
+*/
+
+package util;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+public class PollingLockStrategy implements LockStrategy {
+
+    private final long tickTime;   // millisecs between tryLocks
+
+    public PollingLockStrategy(long tickTime) {
+        if (tickTime <= 0) throw new IllegalArgumentException("Tick time must be positive: " + tickTime);
+        this.tickTime = tickTime;
+    }
+
+    public long getTickTime() {
+        return tickTime;
+    }
+
+    @Override
+    public FileLock acquire(FileChannel fc, long position, long size, boolean shared, long timeout)
+                            throws InterruptedException, IOException {
+        FileLock fl = fc.tryLock(position, size, shared);  // throws IOException
+        if (fl != null || timeout <= 0) return fl;
+        long waitLoops = timeout / tickTime + 1;
+        for (long i = 1; i <= waitLoops; i++) {
+            Thread.sleep(tickTime);  // throws interruptedException
+            fl = fc.tryLock(position, size, shared);
+            if (fl != null) return fl;
+        } // end for waitLoops
+        return null;
+    } // end acquire
+
+    @Override
+    public String toString() {
+        return "Polling(" + tickTime + " ms)";
+    }
+
+}  // end class PollingLockStrategy
@@ -0,0 +1,69 @@
+/* Add New Score benchmark - cost of HighScoreProcessor.addNewScore for a score that makes the board.
+Each call reserves a place, gets a name and commits the score: two turns at the reservations
+sidecar, and a lock-read-merge-write of the high score file.  The processor runs headless - names
+come from a provider that answers at once, and nothing is displayed.  Scores keep rising so every
+one is a high score.
+*/
+
+package benchmarks.jmh;    // JMH benchmarks of the high score classes
+import benchmarks.HeadlessHighScoreProcessor;
+import games.HighScore;
+import games.HighScoreFile;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ---------------------------------------------------------------------
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddNewScoreBenchmark {
+
+    @State(Scope.Thread)
+    public static class ProcessorState {
+        @Param({"10", "1000"})
+        int maxHighScores;
+
+        File file;
+        HeadlessHighScoreProcessor processor;
+        int nextScore;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            file = File.createTempFile("AddNewScoreBenchmark", ".txt");
+            List<HighScore> scores = new ArrayList<>();
+            for (int i = 0; i < maxHighScores; i++) scores.add(new HighScore("Player " + i, maxHighScores - i));
+            HighScoreFile.writeHighScoresToFile(scores, file);
+            processor = new HeadlessHighScoreProcessor(file, maxHighScores, "Bench");
+            nextScore = maxHighScores + 1;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            processor.close();
+            for (String suffix: new String[] {"", ".seq", ".reservations"}) new File(file.getPath() + suffix).delete();
+        }
+    } // end class ProcessorState
+
+    @Benchmark
+    public void addNewScore(ProcessorState state) {
+        state.processor.addNewScore(state.nextScore++);
+    }
+
+} // end class AddNewScoreBenchmark
@@ -0,0 +1,31 @@
+/* Benchmark Main - runs the JMH benchmarks, writing results as JSON unless told otherwise.
+Takes the usual JMH command line (java -jar benchmarks.jar -h lists it).  With no -rf/-rff
+results go to jmh-result.json, so each release's run can be kept and compared with the next.
+*/
+
+package benchmarks.jmh;    // JMH benchmarks of the high score classes
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// ---------------------------------------------------------------------
+public class BenchmarkMain {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListProfilers()
+            || cmdOptions.shouldListResultFormats() || cmdOptions.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);   // nothing to run - let JMH answer
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (!cmdOptions.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cmdOptions.getResult().hasValue()) options.result(DEFAULT_RESULT_FILE);
+        new Runner(options.build()).run();
+    } // end main
+
+} // end class BenchmarkMain
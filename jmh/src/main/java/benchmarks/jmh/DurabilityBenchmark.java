@@ -0,0 +1,97 @@
+/* Durability benchmark - throughput and latency of saving a high score under each durability.
+Four threads save to one file at once, each through its own headless processor, the way the
+processes of several games would.  NONE never forces the file, RECORD forces it under the lock for
+every save, and GROUP lets the saves waiting together share one force (see HighScoreFileSync).
+Throughput is saves per second across all threads; sample time gives the latency percentiles.
+Results depend heavily on the disk - run it on the machine the games will use.
+*/
+
+package benchmarks.jmh;    // JMH benchmarks of the high score classes
+import benchmarks.HeadlessHighScoreProcessor;
+import games.HighScore;
+import games.HighScoreFile;
+import games.HighScoreFileSync;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ---------------------------------------------------------------------
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class DurabilityBenchmark {
+
+    static final int MAX_HIGH_SCORES = 10;
+
+    // the file every thread saves to, and the rising scores they save
+    @State(Scope.Benchmark)
+    public static class FileState {
+        @Param({"NONE", "GROUP", "RECORD"})
+        HighScoreFileSync.Durability durability;
+
+        File file;
+        final AtomicInteger nextScore = new AtomicInteger(MAX_HIGH_SCORES + 1);
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            file = File.createTempFile("DurabilityBenchmark", ".txt");
+            List<HighScore> scores = new ArrayList<>();
+            for (int i = 0; i < MAX_HIGH_SCORES; i++) scores.add(new HighScore("Player " + i, MAX_HIGH_SCORES - i));
+            HighScoreFile.writeHighScoresToFile(scores, file);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            HighScoreFileSync sync = HighScoreFileSync.of(file);
+            if (sync.getForces() > 0) {
+                System.out.printf("%n%s: %d saves in %d group forces (%.1f saves per force)%n", durability,
+                                  sync.getForcedSaves(), sync.getForces(), sync.getForcedSaves() / (double) sync.getForces());
+            }
+            for (String suffix: new String[] {"", ".seq"}) new File(file.getPath() + suffix).delete();
+        }
+    } // end class FileState
+
+    // each thread saves through its own processor, as each game process would
+    @State(Scope.Thread)
+    public static class ProcessorState {
+        HeadlessHighScoreProcessor processor;
+
+        @Setup(Level.Trial)
+        public void setUp(FileState fileState) {
+            processor = new HeadlessHighScoreProcessor(fileState.file, MAX_HIGH_SCORES, "Bench");
+            processor.setDurability(fileState.durability);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            processor.close();
+        }
+    } // end class ProcessorState
+
+    @Benchmark
+    public String saveHighScore(FileState fileState, ProcessorState state) {
+        HighScore hs = new HighScore("Bench", fileState.nextScore.getAndIncrement());
+        return state.processor.saveHighScores(Collections.singletonList(hs));
+    }
+
+} // end class DurabilityBenchmark
@@ -0,0 +1,155 @@
+/* High Score File benchmarks - parsing, reading and writing high score files.
+lineParse is timed for one line, both from a String and from the bytes of a line.  Whole files of
+5, 10k and 1M lines are read with readHighScoresFromFile, and written with writeHighScoresToFile.
+Writes are also timed the old way, printf through a PrintWriter, against HighScoreEncoder's direct
+buffer - both to bytes in memory and to the file.  Reading just the best 10 of a file is timed
+three ways: the whole file read then trimmed, a bounded running top 10 over the lazy stream, and the
+stream stopped after 10 records of the (sorted) file.
+*/
+
+package benchmarks.jmh;    // JMH benchmarks of the high score classes
+import games.HighScore;
+import games.HighScoreFile;
+import games.HighScoreEncoder;
+import games.Leaderboard;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ---------------------------------------------------------------------
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HighScoreFileBenchmark {
+
+    static final int TOP = 10;   // high scores kept by the top N reads
+
+    static final String LINE = String.format("%-30s,%9d,%s", "Player 1234", 98765, "2017-08-02");
+
+    // ------------ one line ------------------------------------------------------------------
+    @State(Scope.Thread)
+    public static class LineState {
+        String line = LINE;
+        ByteBuffer lineBytes = ByteBuffer.wrap(LINE.getBytes(StandardCharsets.US_ASCII));
+    } // end class LineState
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public HighScore lineParseString(LineState state) {
+        return HighScoreFile.lineParse(state.line);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public HighScore lineParseBytes(LineState state) {
+        return HighScoreFile.lineParse(state.lineBytes, 0, state.lineBytes.limit());
+    }
+
+    // ------------ whole files ---------------------------------------------------------------
+    @State(Scope.Benchmark)
+    public static class FileState {
+        @Param({"5", "10000", "1000000"})
+        int lines;
+
+        List<HighScore> scores;
+        File readFile;     // written once, then only read
+        File writeFile;    // rewritten by every write
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            scores = makeScores(lines);
+            readFile = File.createTempFile("HighScoreFileBenchmark", ".txt");
+            writeFile = File.createTempFile("HighScoreFileBenchmark", ".txt");
+            HighScoreFile.writeHighScoresToFile(scores, readFile);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            readFile.delete();
+            writeFile.delete();
+        }
+    } // end class FileState
+
+    @Benchmark
+    public List<HighScore> readHighScoresFromFile(FileState state) throws Exception {
+        return HighScoreFile.readHighScoresFromFile(state.readFile);
+    }
+
+    @Benchmark
+    public List<HighScore> readTopWholeFile(FileState state) throws Exception {
+        return Leaderboard.topOf(HighScoreFile.readHighScoresFromFile(state.readFile), TOP);
+    }
+
+    @Benchmark
+    public List<HighScore> readTopScan(FileState state) throws Exception {
+        return HighScoreFile.readTopHighScores(state.readFile, TOP, false);
+    }
+
+    @Benchmark
+    public List<HighScore> readTopSorted(FileState state) throws Exception {
+        return HighScoreFile.readTopHighScores(state.readFile, TOP, true);
+    }
+
+    @Benchmark
+    public File writeHighScoresToFile(FileState state) throws Exception {
+        HighScoreFile.writeHighScoresToFile(state.scores, state.writeFile);
+        return state.writeFile;
+    }
+
+    @Benchmark
+    public File writeHighScoresPrintf(FileState state) throws Exception {
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(state.writeFile)))) {
+            HighScoreFile.writeHighScoresToFile(state.scores, pw);
+        }
+        return state.writeFile;
+    }
+
+    @Benchmark
+    public ByteBuffer encode(FileState state) {
+        return HighScoreEncoder.encode(state.scores);
+    }
+
+    @Benchmark
+    public byte[] encodePrintf(FileState state) {
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            HighScoreFile.writeHighScoresToFile(state.scores, pw);
+        }
+        return sw.toString().getBytes(Charset.defaultCharset());
+    }
+
+    // count high scores, best first, as a full board would be
+    static List<HighScore> makeScores(int count) {
+        List<HighScore> scores = new ArrayList<>(count);
+        LocalDate date = LocalDate.of(2017, 8, 2);
+        for (int i = 0; i < count; i++) {
+            scores.add(new HighScore("Player " + i, 999999999 - i, date));   // 9 digits, as the file holds
+        }
+        return scores;
+    } // End makeScores()
+
+} // end class HighScoreFileBenchmark
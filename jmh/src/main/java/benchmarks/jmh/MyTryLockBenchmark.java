@@ -0,0 +1,146 @@
+/* MyTryLock benchmarks - time to get a file lock with MyTryLock.myTryLock, for each lock strategy.
+uncontended - nothing else holds the file, so the first tryLock gets it.
+contended   - a child JVM holds the file and lets go holdMillis after each call starts waiting, so
+              the time is holdMillis plus how late the strategy notices the release.
+*/
+
+package benchmarks.jmh;    // JMH benchmarks of the high score classes
+import benchmarks.ChildJvm;
+import benchmarks.LockStrategyBenchmark;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BackoffLockStrategy;
+import util.BlockingLockStrategy;
+import util.LockStrategy;
+import util.MyTryLock;
+import util.PollingLockStrategy;
+
+// ---------------------------------------------------------------------
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+public class MyTryLockBenchmark {
+
+    static final int LOCK_TIMEOUT = 10000;
+
+    // temp file to lock, and the strategy to lock it with
+    @State(Scope.Thread)
+    public abstract static class LockFile {
+        @Param({"polling", "backoff", "blocking"})
+        String strategy;
+
+        LockStrategy lockStrategy;   // passed to each call - blocking cant be the default
+        File file;
+        RandomAccessFile raf;
+        FileChannel fc;
+
+        void open() throws Exception {
+            lockStrategy = newStrategy(strategy);
+            file = File.createTempFile("MyTryLockBenchmark", ".lock");
+            raf = new RandomAccessFile(file, "rw");
+            fc = raf.getChannel();
+        }
+
+        void close() throws Exception {
+            raf.close();
+            file.delete();
+        }
+    } // end class LockFile
+
+    // ------------ uncontended ---------------------------------------------------------------
+    @State(Scope.Thread)
+    public static class FileState extends LockFile {
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            open();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            close();
+        }
+    } // end class FileState
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void uncontended(FileState state) throws Exception {
+        FileLock fl = MyTryLock.myTryLock(state.fc, state.lockStrategy, LOCK_TIMEOUT);
+        fl.release();
+    }
+
+    // ------------ contended -----------------------------------------------------------------
+    @State(Scope.Thread)
+    public static class ContendedState extends LockFile {
+        @Param({"20"})
+        int holdMillis;
+
+        ChildJvm child;
+        ScheduledExecutorService releaser;
+        FileLock fl;
+
+        @Setup(Level.Trial)
+        public void startChild() throws Exception {
+            open();
+            child = new ChildJvm(LockStrategyBenchmark.class, "hold", file.getPath());
+            child.expect("ready");
+            releaser = Executors.newSingleThreadScheduledExecutor();
+        }
+
+        // child takes the lock, and is told to let go holdMillis from now
+        @Setup(Level.Invocation)
+        public void childLocks() throws Exception {
+            child.send("lock");
+            child.expect("locked");
+            releaser.schedule(() -> child.send("release"), holdMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @TearDown(Level.Invocation)
+        public void release() throws Exception {
+            if (fl != null) fl.release();
+            fl = null;
+            child.expect("released");
+        }
+
+        @TearDown(Level.Trial)
+        public void stopChild() throws Exception {
+            child.send("quit");
+            child.close();
+            releaser.shutdownNow();
+            close();
+        }
+    } // end class ContendedState
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void contended(ContendedState state) throws Exception {
+        state.fl = MyTryLock.myTryLock(state.fc, state.lockStrategy, LOCK_TIMEOUT);
+    }
+
+    static LockStrategy newStrategy(String name) {
+        if (name.equals("backoff")) return new BackoffLockStrategy(1, 50);
+        if (name.equals("blocking")) return new BlockingLockStrategy();
+        return new PollingLockStrategy(50);
+    } // End newStrategy()
+
+} // end class MyTryLockBenchmark
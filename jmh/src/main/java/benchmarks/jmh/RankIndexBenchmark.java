@@ -0,0 +1,99 @@
+/* Rank Index benchmarks - what place a score takes among every score submitted.
+rankOf is timed against an index of 10k and 1M scores, and against a linear count of the scores,
+the only way to rank a score the high score file doesn't hold.  add times counting one more score,
+and load times reading a rank log's snapshot and tail back in, as a process does at startup.
+*/
+
+package benchmarks.jmh;    // JMH benchmarks of the high score classes
+import games.HighScoreRankIndex;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ---------------------------------------------------------------------
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RankIndexBenchmark {
+
+    static final int MAX_SCORE = 1000000;
+
+    // a rank log of scores, and the index loaded from it
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        @Param({"10000", "1000000"})
+        int scores;
+
+        File file;
+        int[] logged;
+        HighScoreRankIndex index;
+        final Random random = new Random(42);
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            file = File.createTempFile("RankIndexBenchmark", ".txt");
+            logged = new int[scores];
+            List<Integer> log = new ArrayList<>();
+            for (int i = 0; i < scores; i++) {
+                logged[i] = random.nextInt(MAX_SCORE);
+                log.add(logged[i]);
+            }
+            index = new HighScoreRankIndex(file);
+            index.record(log, 1000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+            index.getRanksFile().delete();
+            index.getSnapshotFile().delete();
+        }
+    } // end class IndexState
+
+    @Benchmark
+    public long rankOf(IndexState state) {
+        return state.index.rankOf(state.random.nextInt(MAX_SCORE));
+    }
+
+    @Benchmark
+    public long rankOfLinear(IndexState state) {
+        int score = state.random.nextInt(MAX_SCORE);
+        long above = 0;
+        for (int logged: state.logged) {
+            if (logged > score) above++;
+        }
+        return above + 1;
+    }
+
+    @Benchmark
+    public long add(IndexState state) {
+        state.index.add(state.random.nextInt(MAX_SCORE));
+        return state.index.getTotal();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long load(IndexState state) throws Exception {
+        HighScoreRankIndex loaded = new HighScoreRankIndex(state.file);
+        loaded.load(1000);
+        return loaded.getTotal();
+    }
+
+} // end class RankIndexBenchmark
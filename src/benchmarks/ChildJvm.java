@@ -0,0 +1,74 @@
+/* Child JVM - starts another java process running a main class from this classpath, and talks to
+it a line at a time over its stdin and stdout.  File locks are held per process, so the benchmarks
+need other processes to create real lock contention.
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// ---------------------------------------------------------------------
+public class ChildJvm implements AutoCloseable {
+
+    private final Process process;
+    private final BufferedReader in;     // child stdout
+    private final PrintWriter out;       // child stdin
+
+    // Start a JVM running mainClass with args, using this JVMs java executable and classpath.
+    public ChildJvm(Class<?> mainClass, String... args) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(Arrays.asList(args));
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        in = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        out = new PrintWriter(process.getOutputStream(), true);
+    } // end ChildJvm constructor
+
+    public void send(String line) {
+        out.println(line);
+    }
+
+    // next line the child prints, or an IOException if it exits first
+    public String readLine() throws IOException {
+        String line = in.readLine();
+        if (line == null) throw new IOException("Child JVM exited: " + exitValueString());
+        return line;
+    }
+
+    // read lines until one equals expected - any other lines are passed through to System.out.
+    public void expect(String expected) throws IOException {
+        String line;
+        while (!(line = readLine()).equals(expected)) {
+            System.out.println("child: " + line);
+        }
+    }
+
+    public int waitFor() throws InterruptedException {
+        return process.waitFor();
+    }
+
+    @Override
+    public void close() {
+        out.close();
+        process.destroy();
+    }
+
+    private String exitValueString() {
+        try {
+            return "exit value " + process.exitValue();
+        } catch (IllegalThreadStateException e) {
+            return "still running";
+        }
+    }
+
+} // end class ChildJvm
@@ -0,0 +1,37 @@
+/* Headless High Score Processor - a HighScoreProcessor that never shows a dialog.
+Names come from the given name provider (a fixed name by default), waits for a locked file are
+never offered to the user, and high scores are not displayed.  Used by the benchmarks to drive the
+real save path without anyone clicking.
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import games.HighScore;
+import games.HighScoreProcessor;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// ---------------------------------------------------------------------
+public class HeadlessHighScoreProcessor extends HighScoreProcessor {
+
+    // Processor of file, keeping maxHighScores, that names every high score name.
+    public HeadlessHighScoreProcessor(File file, int maxHighScores, String name) {
+        this.file = file;
+        this.maxHighScores = maxHighScores;
+        this.canReadWriteFile = true;
+        this.highScores = reReadHighScores(file);
+        setQueryUser(false);
+        setNameProvider((score, prompt) -> CompletableFuture.completedFuture(name));
+    } // end HeadlessHighScoreProcessor constructor
+
+    // Lock, merge newHighs into and write the file, in the calling thread.  "" if saved, else why not.
+    public String saveHighScores(List<HighScore> newHighs) {
+        return saveHighScoresToFile(newHighs, "");
+    } // End saveHighScores()
+
+    @Override
+    public void displayHighScores(List<HighScore> highScores, String title, String errorMsg) {
+        // headless
+    }
+
+} // end class HeadlessHighScoreProcessor
@@ -0,0 +1,82 @@
+/* High Score Table memory benchmark - compares the retained heap of a million entry board held as
+an ArrayList of HighScore objects with the same board held in a columnar HighScoreTable.
+Run with: java benchmarks.HighScoreTableMemoryBenchmark [entries] [players]
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import games.HighScore;
+import games.HighScoreTable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// ---------------------------------------------------------------------
+public class HighScoreTableMemoryBenchmark {
+
+    static final int DEFAULT_ENTRIES = 1000000;
+    static final int DEFAULT_PLAYERS = 10000;
+
+    public static void main(String[] args) {
+        int entries = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+        int players = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PLAYERS;
+
+        long listBytes = measureList(entries, players);
+        long tableBytes = measureTable(entries, players);
+        System.out.printf("%,d entries, %,d players%n", entries, players);
+        System.out.printf("ArrayList<HighScore>: %,d bytes (%.1f bytes/entry)%n", listBytes, listBytes / (double) entries);
+        System.out.printf("HighScoreTable:       %,d bytes (%.1f bytes/entry)%n", tableBytes, tableBytes / (double) entries);
+        System.out.printf("HighScoreTable is %.1f times smaller%n", listBytes / (double) tableBytes);
+    } // end main
+
+    // Each entry gets its own name String and LocalDate, as lineParse makes them.
+    static long measureList(int entries, int players) {
+        Random random = new Random(17);
+        long before = usedMemory();
+        List<HighScore> list = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            list.add(new HighScore(playerName(random.nextInt(players)), random.nextInt(100000000), randomDate(random)));
+        }
+        long used = usedMemory() - before;
+        if (list.size() != entries) throw new IllegalStateException("list lost entries");  // keep list reachable
+        return used;
+    } // End measureList()
+
+    static long measureTable(int entries, int players) {
+        Random random = new Random(17);
+        long before = usedMemory();
+        HighScoreTable table = new HighScoreTable(entries);
+        for (int i = 0; i < entries; i++) {
+            table.add(playerName(random.nextInt(players)), random.nextInt(100000000), randomDate(random));
+        }
+        long used = usedMemory() - before;
+        if (table.size() != entries) throw new IllegalStateException("table lost entries");  // keep table reachable
+        return used;
+    } // End measureTable()
+
+    // names padded to 30 chars just as lineParse leaves them
+    static String playerName(int player) {
+        return String.format("%-30s", "Player " + player);
+    }
+
+    static LocalDate randomDate(Random random) {
+        return LocalDate.of(2000, 1, 1).plusDays(random.nextInt(9000));
+    }
+
+    // heap in use after garbage collecting as fully as we can
+    static long usedMemory() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    } // End usedMemory()
+
+} // end class HighScoreTableMemoryBenchmark
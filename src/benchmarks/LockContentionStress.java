@@ -0,0 +1,230 @@
+/* Lock Contention Stress - many game processes saving high scores to one file at once.
+Starts children JVMs, each submitting scores through HighScoreProcessor.addNewScoreAsync (reserve,
+name, commit - the real MyTryLock path) at ratePerSecond for the given seconds, headless.  Every
+submission's lock wait (time spent in the lock strategy), end to end time and outcome are written by
+its child to a results file.  The report gives percentiles of both times, how many scores fell back
+to being saved locally, and checks the final file: it must hold exactly the best maxHighScores of
+the scores saved to it, in order.  Use it to size how many game processes can share one file.
+Scores are unique across children (score mod children is the child), so the check is exact.
+Run with: java benchmarks.LockContentionStress [children] [seconds] [ratePerSecond] [maxHighScores] [strategy]
+  ratePerSecond 0 => submit as fast as possible.  strategy is polling or backoff (the processors lock
+  through FileLockCoordinator's shared channels, which BlockingLockStrategy refuses).
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import games.HighScore;
+import games.HighScoreFile;
+import games.Leaderboard;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import util.BackoffLockStrategy;
+import util.LockStrategy;
+import util.MyTryLock;
+import util.PollingLockStrategy;
+
+// ---------------------------------------------------------------------
+public class LockContentionStress {
+
+    static final char SAVED = 'F';         // saved to the file
+    static final char LOCAL = 'L';         // fell back to saving locally
+    static final char NOT_HIGH = 'N';      // didnt make the board
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            runChild(args);
+            return;
+        }
+        int children = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        double ratePerSecond = (args.length > 2) ? Double.parseDouble(args[2]) : 20;
+        int maxHighScores = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+        String strategy = (args.length > 4) ? args[4] : "polling";
+
+        File file = File.createTempFile("LockContentionStress", ".txt");
+        HighScoreFile.writeHighScoresToFile(new ArrayList<HighScore>(), file);
+        System.out.printf("%d children, %d s, %s submissions/sec each, %d high scores, %s locks%n",
+                          children, seconds, (ratePerSecond > 0) ? "" + ratePerSecond : "unlimited",
+                          maxHighScores, strategy);
+
+        List<ChildJvm> jvms = new ArrayList<>();
+        List<File> resultFiles = new ArrayList<>();
+        try {
+            for (int i = 0; i < children; i++) {
+                File results = new File(file.getPath() + ".child" + i);
+                resultFiles.add(results);
+                jvms.add(new ChildJvm(LockContentionStress.class, "child", file.getPath(), results.getPath(), "" + i,
+                                      "" + children, "" + seconds * 1000, "" + ratePerSecond, "" + maxHighScores, strategy));
+            }
+            for (ChildJvm jvm: jvms) jvm.expect("ready");
+            for (ChildJvm jvm: jvms) jvm.send("go");
+            for (ChildJvm jvm: jvms) jvm.expect("done");
+        } finally {
+            for (ChildJvm jvm: jvms) jvm.close();
+        }
+
+        List<long[]> submissions = new ArrayList<>();    // lockWaitNanos, endToEndNanos, outcome, score
+        for (File results: resultFiles) {
+            submissions.addAll(readResults(results));
+            results.delete();
+        }
+        report(submissions, seconds, maxHighScores, HighScoreFile.readHighScoresFromFile(file));
+        for (String suffix: new String[] {"", ".seq", ".reservations"}) new File(file.getPath() + suffix).delete();
+    } // end main
+
+    static List<long[]> readResults(File results) throws IOException {
+        List<long[]> submissions = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(results))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.split(" ");
+                submissions.add(new long[] {Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                                            fields[2].charAt(0), Long.parseLong(fields[3])});
+            }
+        }
+        return submissions;
+    } // End readResults()
+
+    static void report(List<long[]> submissions, int seconds, int maxHighScores, List<HighScore> fileScores) {
+        int count = submissions.size();
+        long[] lockWaits = new long[count];
+        long[] endToEnds = new long[count];
+        int saved = 0;
+        int local = 0;
+        int notHigh = 0;
+        List<HighScore> savedScores = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long[] submission = submissions.get(i);
+            lockWaits[i] = submission[0];
+            endToEnds[i] = submission[1];
+            if (submission[2] == SAVED) {
+                saved++;
+                savedScores.add(new HighScore("", (int) submission[3]));
+            } else if (submission[2] == LOCAL) {
+                local++;
+            } else {
+                notHigh++;
+            }
+        }
+        System.out.printf("%d submissions (%.1f/sec): %d saved to file, %d saved locally, %d not high scores%n",
+                          count, count / (double) seconds, saved, local, notHigh);
+        System.out.printf("%-12s %9s %9s %9s %9s %9s%n", "millisecs", "p50", "p90", "p99", "p99.9", "max");
+        printPercentiles("lock wait", lockWaits);
+        printPercentiles("end to end", endToEnds);
+
+        // the file should hold just the best of the scores saved to it, best first
+        List<Integer> expected = new ArrayList<>();
+        for (HighScore hs: Leaderboard.topOf(savedScores, maxHighScores)) expected.add(hs.getScore());
+        List<Integer> actual = new ArrayList<>();
+        for (HighScore hs: fileScores) actual.add(hs.getScore());
+        if (actual.equals(expected)) {
+            System.out.println("File consistent: " + actual.size() + " high scores, the best of those saved.");
+        } else {
+            System.out.println("File INCONSISTENT.");
+            System.out.println("  expected " + expected);
+            System.out.println("  found    " + actual);
+        }
+    } // End report()
+
+    static void printPercentiles(String label, long[] nanos) {
+        if (nanos.length == 0) return;
+        Arrays.sort(nanos);
+        System.out.printf("%-12s %9.2f %9.2f %9.2f %9.2f %9.2f%n", label, percentile(nanos, 50), percentile(nanos, 90),
+                          percentile(nanos, 99), percentile(nanos, 99.9), nanos[nanos.length - 1] / 1e6);
+    } // End printPercentiles()
+
+    // percentile of sorted nanos, in millisecs
+    static double percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    } // End percentile()
+
+    static LockStrategy newStrategy(String name) {
+        if (name.equals("backoff")) return new BackoffLockStrategy(1, 50);
+        return new PollingLockStrategy(50);
+    } // End newStrategy()
+
+
+    // Child side: child file results index children durationMillis ratePerSecond maxHighScores strategy
+    static void runChild(String[] args) throws Exception {
+        File file = new File(args[1]);
+        File results = new File(args[2]);
+        int index = Integer.parseInt(args[3]);
+        int children = Integer.parseInt(args[4]);
+        long duration = Long.parseLong(args[5]);
+        double ratePerSecond = Double.parseDouble(args[6]);
+        int maxHighScores = Integer.parseInt(args[7]);
+        TimingLockStrategy timing = new TimingLockStrategy(newStrategy(args[8]));
+        MyTryLock.setDefaultStrategy(timing);
+
+        // the processor talks a lot on System.out, which is how this child talks to its parent
+        PrintStream parent = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // dropped
+            }
+        }));
+        HeadlessHighScoreProcessor processor = new HeadlessHighScoreProcessor(file, maxHighScores, "Child " + index);
+        Random random = new Random(index);
+        long intervalNanos = (ratePerSecond > 0) ? (long) (1e9 / ratePerSecond) : 0;
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(results));
+             BufferedReader commands = new BufferedReader(new InputStreamReader(System.in))) {
+            parent.println("ready");
+            commands.readLine();   // go
+            long end = System.nanoTime() + duration * 1000000;
+            long nextSubmit = System.nanoTime();
+            while (System.nanoTime() < end) {
+                long wait = nextSubmit - System.nanoTime();
+                if (wait > 0) Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                nextSubmit += intervalNanos;
+
+                int score = random.nextInt(1000000) * children + index;   // unique to this child
+                timing.waitNanos = 0;
+                long start = System.nanoTime();
+                String reason = processor.addNewScoreAsync(score).join();
+                long endToEnd = System.nanoTime() - start;
+                char outcome = (reason == null) ? NOT_HIGH : reason.isEmpty() ? SAVED : LOCAL;
+                out.println(timing.waitNanos + " " + endToEnd + " " + outcome + " " + score);
+            } // end while
+        }
+        processor.close();
+        parent.println("done");
+    } // End runChild()
+
+
+    // ------------ TimingLockStrategy - adds up the time spent waiting in another strategy ----------
+    static class TimingLockStrategy implements LockStrategy {
+        private final LockStrategy strategy;
+        long waitNanos = 0;     // the child's only thread locks, and resets this per submission
+
+        TimingLockStrategy(LockStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public FileLock acquire(FileChannel fc, long position, long size, boolean shared, long timeout)
+                                throws InterruptedException, IOException {
+            long start = System.nanoTime();
+            try {
+                return strategy.acquire(fc, position, size, shared, timeout);
+            } finally {
+                waitNanos += System.nanoTime() - start;
+            }
+        }
+    } // end class TimingLockStrategy
+
+} // end class LockContentionStress
@@ -0,0 +1,159 @@
+/* Lock Strategy benchmark - measures how long each LockStrategy takes to get a file lock after
+another process releases it.  A child JVM repeatedly locks the file, holds it while this process
+starts waiting, then releases it; the time from release to this process holding the lock is the
+acquisition latency.  HighScoreFileAsync (a read, its locks retried on a timer) and a bare
+AsynchronousFileChannel.lock() completion are timed the same way, for comparison.
+Run with: java benchmarks.LockStrategyBenchmark [iterations] [holdMillis]
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import games.HighScoreFileAsync;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import util.BackoffLockStrategy;
+import util.BlockingLockStrategy;
+import util.LockStrategy;
+import util.PollingLockStrategy;
+
+// ---------------------------------------------------------------------
+public class LockStrategyBenchmark {
+
+    static final int DEFAULT_ITERATIONS = 50;
+    static final int DEFAULT_HOLD_MILLIS = 40;     // average time child holds the lock
+    static final long TIMEOUT = 10000;             // millisecs any strategy may wait
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("hold")) {
+            holdLocks(new File(args[1]));
+            return;
+        }
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        int holdMillis = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_HOLD_MILLIS;
+        File file = File.createTempFile("LockStrategyBenchmark", ".txt");
+        file.deleteOnExit();
+
+        LockStrategy[] strategies = { new PollingLockStrategy(50), new PollingLockStrategy(5),
+                                      new BackoffLockStrategy(1, 50), new BlockingLockStrategy() };
+        ExecutorService waiter = Executors.newSingleThreadExecutor();
+        try (ChildJvm child = new ChildJvm(LockStrategyBenchmark.class, "hold", file.getPath())) {
+            child.expect("ready");
+            System.out.printf("%-22s %10s %10s %10s %10s%n", "strategy", "mean ms", "p50 ms", "p99 ms", "max ms");
+            for (LockStrategy strategy: strategies) {
+                long[] latencies = new long[iterations];
+                for (int i = 0; i < iterations; i++) {
+                    latencies[i] = measure(() -> waiter.submit(() -> acquire(strategy, file)), child, holdMillis);
+                }
+                report(strategy.toString(), latencies);
+            }
+            HighScoreFileAsync.readHighScoresAsync(file, TIMEOUT).get();   // load its classes and threads first
+            long[] latencies = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                latencies[i] = measure(() -> HighScoreFileAsync.readHighScoresAsync(file, TIMEOUT)
+                                                               .thenApply(scores -> System.nanoTime()),
+                                       child, holdMillis);
+            }
+            report("HighScoreFileAsync", latencies);
+            for (int i = 0; i < iterations; i++) {
+                latencies[i] = measure(() -> lockAsync(file), child, holdMillis);
+            }
+            report("AsynchronousFileChannel", latencies);
+            child.send("quit");
+        } finally {
+            waiter.shutdownNow();
+        }
+    } // end main
+
+    // One contended acquisition: nanosecs from the child releasing the lock to the future that start
+    // began (while the child held the lock) completing with the time it got the lock.
+    static long measure(Callable<Future<Long>> start, ChildJvm child, int holdMillis) throws Exception {
+        child.send("lock");
+        child.expect("locked");
+        Future<Long> acquired = start.call();
+        Thread.sleep(holdMillis / 2 + ThreadLocalRandom.current().nextInt(holdMillis + 1));
+        child.send("release");
+        long released = System.nanoTime();   // child releases just after reading the line
+        child.expect("released");
+        return acquired.get() - released;
+    } // End measure()
+
+    // Lock file with strategy on a channel of this call's own - the time it got the lock.
+    static long acquire(LockStrategy strategy, File file) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel fc = raf.getChannel();
+             FileLock fl = strategy.acquire(fc, TIMEOUT)) {
+            if (fl == null) throw new IOException(strategy + " timed out");
+            return System.nanoTime();
+        }
+    } // End acquire()
+
+    // Lock file with AsynchronousFileChannel.lock on a channel of its own - completes with the time it got the lock.
+    static Future<Long> lockAsync(File file) throws IOException {
+        AsynchronousFileChannel afc = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ,
+                                                                   StandardOpenOption.WRITE);
+        CompletableFuture<Long> acquired = new CompletableFuture<>();
+        afc.lock(null, new CompletionHandler<FileLock, Void>() {
+            @Override
+            public void completed(FileLock fl, Void attachment) {
+                long now = System.nanoTime();
+                try {
+                    afc.close();   // releases fl
+                } catch (IOException e) {
+                    // only timing the lock
+                }
+                acquired.complete(now);
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                acquired.completeExceptionally(e);
+            }
+        });
+        return acquired;
+    } // End lockAsync()
+
+    static void report(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1e6;
+        System.out.printf("%-22s %10.2f %10.2f %10.2f %10.2f%n", name, mean,
+                          sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6,
+                          sorted[sorted.length - 1] / 1e6);
+    } // End report()
+
+    // Child side - lock and release the file whenever told to.
+    static void holdLocks(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel fc = raf.getChannel();
+             BufferedReader commands = new BufferedReader(new InputStreamReader(System.in))) {
+            System.out.println("ready");
+            FileLock fl = null;
+            String command;
+            while ((command = commands.readLine()) != null && !command.equals("quit")) {
+                if (command.equals("lock")) {
+                    fl = fc.lock();
+                    System.out.println("locked");
+                } else if (command.equals("release") && fl != null) {
+                    fl.release();
+                    fl = null;
+                    System.out.println("released");
+                }
+            } // end while
+        }
+    } // End holdLocks()
+
+} // end class LockStrategyBenchmark
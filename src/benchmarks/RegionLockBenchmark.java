@@ -0,0 +1,149 @@
+/* Region Lock benchmark - compares whole file locks with HighScoreFileRegions byte range locks
+when several processes share one high score file.  Reader processes repeatedly check the cutoff
+(the last record) and writer processes repeatedly update records in their own part of the file.
+Three lockings are timed:
+  whole     - every operation locks the whole file, so each waits for every other.
+  region    - readers share the last record and writers lock just the one record they rewrite in
+              place, so writers of different records proceed in parallel.  An upper bound - the
+              high score file is sorted, so HighScoreProcessor never updates a record in place.
+  processor - as HighScoreProcessor locks: a writer holds the header exclusive and the records
+              from its record to the end (a new score moves every record below it), and a reader
+              takes the header shared for a moment and holds the records from the cutoff on
+              shared.  Writers take turns, and a writer with the header keeps new readers out,
+              so readers share without starving writers.
+Run with: java benchmarks.RegionLockBenchmark [readers] [writers] [seconds] [holdMillis]
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import games.HighScore;
+import games.HighScoreFile;
+import games.HighScoreFileRegions;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import util.BlockingLockStrategy;
+import util.LockStrategy;
+import util.MyTryLock;
+
+// ---------------------------------------------------------------------
+public class RegionLockBenchmark {
+
+    static final int RECORDS = 1000;
+    static final long LOCK_TIMEOUT = 60000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            runChild(args);
+            return;
+        }
+        int readers = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int writers = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        int holdMillis = (args.length > 3) ? Integer.parseInt(args[3]) : 1;
+
+        File file = File.createTempFile("RegionLockBenchmark", ".txt");
+        file.deleteOnExit();
+        List<HighScore> scores = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            scores.add(new HighScore(String.format("%-30s", "Player " + i), 1000000 - i, LocalDate.of(2017, 8, 2)));
+        }
+        HighScoreFile.writeHighScoresToFile(scores, file);
+
+        System.out.printf("%d reader and %d writer processes, %d s each, locks held %d ms%n",
+                          readers, writers, seconds, holdMillis);
+        System.out.printf("%-8s %14s %14s%n", "locks", "cutoffs/sec", "writes/sec");
+        for (String mode: new String[] {"whole", "region", "processor"}) {
+            List<ChildJvm> children = new ArrayList<>();
+            try {
+                for (int i = 0; i < readers + writers; i++) {
+                    String role = (i < readers) ? "reader" : "writer";
+                    String writer = "" + (i - readers);
+                    children.add(new ChildJvm(RegionLockBenchmark.class, "child", role, mode, file.getPath(),
+                                              "" + seconds * 1000, writer, "" + writers, "" + holdMillis));
+                }
+                for (ChildJvm child: children) child.expect("ready");
+                for (ChildJvm child: children) child.send("go");
+                long readOps = 0;
+                long writeOps = 0;
+                for (int i = 0; i < children.size(); i++) {
+                    long ops = Long.parseLong(children.get(i).readLine());
+                    if (i < readers) readOps += ops; else writeOps += ops;
+                }
+                System.out.printf("%-8s %14.1f %14.1f%n", mode, readOps / (double) seconds, writeOps / (double) seconds);
+            } finally {
+                for (ChildJvm child: children) child.close();
+            }
+        } // end for mode
+    } // end main
+
+    // Child side: child role mode file durationMillis writerIndex writers holdMillis
+    static void runChild(String[] args) throws Exception {
+        boolean reader = args[1].equals("reader");
+        String mode = args[2];
+        File file = new File(args[3]);
+        long duration = Long.parseLong(args[4]);
+        int writerIndex = Integer.parseInt(args[5]);
+        int writers = Integer.parseInt(args[6]);
+        long holdMillis = Long.parseLong(args[7]);
+        int recordLength = HighScoreFileRegions.getRecordLength();
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        long ops = 0;
+        // no polling delay in any mode - fine on this channel of the child's own, not a coordinator one
+        LockStrategy blocking = new BlockingLockStrategy();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel fc = raf.getChannel();
+             BufferedReader commands = new BufferedReader(new InputStreamReader(System.in))) {
+            System.out.println("ready");
+            commands.readLine();   // go
+            int segment = RECORDS / Math.max(1, writers);
+            long end = System.currentTimeMillis() + duration;
+            while (System.currentTimeMillis() < end) {
+                int index;
+                if (reader) {
+                    index = RECORDS - 1;   // cutoff is the last record
+                } else {
+                    index = writerIndex * segment + (int) (ops % segment);
+                }
+                long position = HighScoreFileRegions.recordPosition(index);
+                FileLock header = null;
+                FileLock fl;
+                if (mode.equals("processor")) {
+                    if (reader) {
+                        fl = HighScoreFileRegions.lockRecordsToRead(fc, blocking, position, LOCK_TIMEOUT);
+                    } else {
+                        header = HighScoreFileRegions.lockHeader(fc, blocking, false, LOCK_TIMEOUT);
+                        fl = HighScoreFileRegions.lockRecordsFrom(fc, blocking, position, false, LOCK_TIMEOUT);
+                    }
+                } else if (mode.equals("region")) {
+                    fl = HighScoreFileRegions.lockRecords(fc, blocking, position, recordLength, reader, LOCK_TIMEOUT);
+                } else {
+                    fl = MyTryLock.myTryLock(fc, blocking, LOCK_TIMEOUT);
+                }
+                if (fl == null) throw new IllegalStateException("Lock timed out");
+                try {
+                    record.clear();
+                    fc.read(record, position);
+                    if (!reader) {
+                        record.flip();
+                        fc.write(record, position);   // rewrite record in place
+                    }
+                    if (holdMillis > 0) Thread.sleep(holdMillis);   // work done while holding the lock
+                } finally {
+                    fl.release();
+                    if (header != null) header.release();
+                }
+                ops++;
+            } // end while
+        }
+        System.out.println(ops);
+    } // End runChild()
+
+} // end class RegionLockBenchmark
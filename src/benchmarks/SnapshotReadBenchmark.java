@@ -0,0 +1,159 @@
+/* Snapshot Read benchmark - read throughput of a high score file while a writer keeps updating it.
+In "locked" mode the writer rewrites the file in place holding the header and record locks, and
+readers take a shared record lock, so every read waits out every write.  In "snapshot" mode the
+writer publishes a whole new file with HighScoreFile.publishHighScores (temp file, force, atomic
+rename) and readers open and read the file with no lock at all.  Each mode is run without and then
+with the writer, and readers also count any board that did not read back whole.  The writer starts a
+write every writeEveryMillis in both modes, so the modes differ only in how long readers wait on it.
+Run with: java benchmarks.SnapshotReadBenchmark [readers] [seconds] [holdMillis] [writeEveryMillis]
+*/
+
+package benchmarks;        // benchmark programs for the high score classes
+import games.HighScore;
+import games.HighScoreFile;
+import games.HighScoreFileRegions;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import util.BlockingLockStrategy;
+import util.LockStrategy;
+import util.MyTryLock;
+
+// ---------------------------------------------------------------------
+public class SnapshotReadBenchmark {
+
+    static final int RECORDS = 1000;
+    static final long LOCK_TIMEOUT = 60000;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            runChild(args);
+            return;
+        }
+        int readers = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        int holdMillis = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+        int writeEveryMillis = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+
+        File file = File.createTempFile("SnapshotReadBenchmark", ".txt");
+        file.deleteOnExit();
+        HighScoreFile.writeHighScoresToFile(makeScores(0), file);
+
+        System.out.printf("%d reader processes, %d s each, a write every %d ms holding its lock %d ms%n",
+                          readers, seconds, writeEveryMillis, holdMillis);
+        System.out.printf("%-9s %-7s %12s %12s %8s%n", "mode", "writer", "reads/sec", "writes/sec", "torn");
+        for (String mode: new String[] {"locked", "snapshot"}) {
+            for (boolean writing: new boolean[] {false, true}) {
+                List<ChildJvm> children = new ArrayList<>();
+                try {
+                    for (int i = 0; i < readers + (writing ? 1 : 0); i++) {
+                        String role = (i < readers) ? "reader" : "writer";
+                        children.add(new ChildJvm(SnapshotReadBenchmark.class, "child", role, mode, file.getPath(),
+                                                  "" + seconds * 1000, "" + holdMillis, "" + writeEveryMillis));
+                    }
+                    for (ChildJvm child: children) child.expect("ready");
+                    for (ChildJvm child: children) child.send("go");
+                    long readOps = 0;
+                    long writeOps = 0;
+                    long torn = 0;
+                    for (int i = 0; i < children.size(); i++) {
+                        String[] result = children.get(i).readLine().split(" ");
+                        if (i < readers) {
+                            readOps += Long.parseLong(result[0]);
+                            torn += Long.parseLong(result[1]);
+                        } else {
+                            writeOps += Long.parseLong(result[0]);
+                        }
+                    }
+                    System.out.printf("%-9s %-7s %12.1f %12.1f %8d%n", mode, writing ? "yes" : "no",
+                                      readOps / (double) seconds, writeOps / (double) seconds, torn);
+                } finally {
+                    for (ChildJvm child: children) child.close();
+                }
+            } // end for writing
+        } // end for mode
+    } // end main
+
+    // full board, with scores shifted by round so every write changes every record
+    static List<HighScore> makeScores(long round) {
+        List<HighScore> scores = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            scores.add(new HighScore(String.format("%-30s", "Player " + i), (int) (1000000 + round - i),
+                                     LocalDate.of(2017, 8, 2)));
+        }
+        return scores;
+    } // End makeScores()
+
+    // Child side: child role mode file durationMillis holdMillis writeEveryMillis - prints "ops torn"
+    static void runChild(String[] args) throws Exception {
+        boolean reader = args[1].equals("reader");
+        boolean snapshot = args[2].equals("snapshot");
+        File file = new File(args[3]);
+        long duration = Long.parseLong(args[4]);
+        long holdMillis = Long.parseLong(args[5]);
+        long writeEveryMillis = Long.parseLong(args[6]);
+        File lockFile = new File(file.getPath() + ".lock");
+        long ops = 0;
+        long torn = 0;
+        // no polling delay in either mode - fine on this channel of the child's own, not a coordinator one
+        LockStrategy blocking = new BlockingLockStrategy();
+
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot ? lockFile : file, "rw");
+             FileChannel fc = raf.getChannel();
+             BufferedReader commands = new BufferedReader(new InputStreamReader(System.in))) {
+            System.out.println("ready");
+            commands.readLine();   // go
+            long end = System.currentTimeMillis() + duration;
+            long nextWrite = System.currentTimeMillis();
+            while (System.currentTimeMillis() < end) {
+                if (!reader) {   // pace the writer
+                    long wait = nextWrite - System.currentTimeMillis();
+                    if (wait > 0) Thread.sleep(wait);
+                    nextWrite += writeEveryMillis;
+                }
+                if (reader) {
+                    List<HighScore> board;
+                    if (snapshot) {
+                        board = HighScoreFile.readHighScoresFromFile(file);   // no lock
+                    } else {
+                        FileLock fl = HighScoreFileRegions.lockRecordsToRead(fc, blocking, 0, LOCK_TIMEOUT);
+                        try {
+                            board = HighScoreFile.readHighScoresFromFile(HighScoreFile.readBytes(fc));
+                        } finally {
+                            fl.release();
+                        }
+                    }
+                    if (board.size() != RECORDS) torn++;
+                } else if (snapshot) {
+                    FileLock fl = MyTryLock.myTryLock(fc, blocking, LOCK_TIMEOUT);
+                    try {
+                        if (holdMillis > 0) Thread.sleep(holdMillis);   // merge work done holding the lock
+                        HighScoreFile.publishHighScores(makeScores(ops + 1), file);
+                    } finally {
+                        fl.release();
+                    }
+                } else {
+                    FileLock header = HighScoreFileRegions.lockHeader(fc, blocking, false, LOCK_TIMEOUT);
+                    FileLock records = HighScoreFileRegions.lockRecordsFrom(fc, blocking, 0, false, LOCK_TIMEOUT);
+                    try {
+                        if (holdMillis > 0) Thread.sleep(holdMillis);
+                        HighScoreFile.writeBytes(fc, HighScoreFile.toBytes(makeScores(ops + 1)), 0);
+                        fc.force(false);   // as publishHighScores does
+                    } finally {
+                        records.release();
+                        header.release();
+                    }
+                }
+                ops++;
+            } // end while
+        }
+        System.out.println(ops + " " + torn);
+    } // End runChild()
+
+} // end class SnapshotReadBenchmark
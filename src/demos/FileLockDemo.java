@@ -13,35 +13,16 @@ will crash.  Lock seems to forcefully block the second process to call it.
 // Comment with Skip.
 
 package demos;             // demo program to test locks - mainly using high score samples 
-import games.HighScore;  
 import games.HighScoreFile;
 import games.HighScoreClassInfo;
 import games.HighScoreProcessor;
-import java.io.FileNotFoundException;
-import java.io.IOException;
+import games.WindowedLeaderboards;
 import java.io.File;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.RandomAccessFile; 
-import java.nio.channels.Channels;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.channels.ClosedChannelException;
-import java.nio.channels.OverlappingFileLockException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;      
 import javax.swing.JOptionPane;
-import util.MyTryLock;
 
 // ---------------------------------------------------------------------
 public class FileLockDemo extends HighScoreProcessor implements Runnable, HighScoreClassInfo {
@@ -108,6 +89,7 @@ public class FileLockDemo extends HighScoreProcessor implements Runnable, HighSc
        HighScoreClassInfo classRef = (HighScoreClassInfo) this;
        file = new File(HighScoreFile.getClassPath(classRef), 
                             classRef.getHighScoreFileName());
+       maxHighScores = classRef.getMaxHighScores();
        readWriteFailures = 0; 
        canReadWriteFile = false;  
        appDone = false;
@@ -169,93 +151,37 @@ public class FileLockDemo extends HighScoreProcessor implements Runnable, HighSc
     } // End displayReadWriteFailureMessage
 
 
-    // this works - seek(0) after reading will overwrite file.
+    // A place on the board is reserved under a short file lock, then the name is typed with no lock
+    // held, then the score is committed under another short lock - so a slow typist never blocks
+    // the other processes.  Start 2 copies and type a name slowly in one to see the other go on.
     @Override
     public void addNewScore(int newScore)  {
-        // ready to add a new score - synch for reread-update-write 
-        String prompt = null;
-        HighScore newHigh = null;
-        List<HighScore> fileScores = new ArrayList<>();
-        // reason must be set to non-null for any failure, or routine wont save 
-        // newScore to local buffer.
         String displayTitle = "";  // Title for pop-up window when displaying high scores
-        String reason = "";        // reason could not use file (no rw, locked, or exception)
         String lockMsg = "Continue waiting to permanently save your high score to a file?";
         lockMsg += " (Otherwise it will be saved only during this application.)";
 
-        // if can RW File ever ... wait for file to be unlocked . . . 
-        // try to add it ... if added, update localHS, else add to localHS
         if (unsureIfCanReadWriteFile()) { 
             // update canRWFile or readWritefailures if file not locked.
             // true => prompt user to continue waiting, 10000 => 10 seconds
             testReadWriteFile(file, 10000, true, lockMsg);  
         }
 
-        // if file is read-write-able, wait for file lock to be released.
-        if (unsureIfCanReadWriteFile()) {
-        	reason = " becuase it is uncertain if the file can be read and writtenm.";
-        } else if (!canReadWriteFile) {
-            reason = " because file can't be read and written";
-        } else { // canRWFile . . . try to do so now.
-            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
-                 FileChannel chanRaf  = raf.getChannel();
-                 InputStream is = Channels.newInputStream(raf.getChannel()); 
-                 BufferedReader br = new BufferedReader(new InputStreamReader(is));
-                 // true => ask user to continue waiting, 10000 => 10 seconds
-                 OutputStream os = Channels.newOutputStream(raf.getChannel()); 
-                 PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(os)));
-                 FileLock lockRaf = MyTryLock.myTryLock(chanRaf, 10000, true, lockMsg);
-            		                                 									) { 
- 
-                System.out.println("FileLockDemo:Add - canRW file - tried lock = " + lockRaf);
-                if (lockRaf == null) {
-                    reason = " because the file is locked"; 
-                } else {                   
-                    // User input can take very long, so dont make it thread protected *normally*.
-                    // but for tesing purposes, we do so here.
-                    String prompt2 = "Please input your name. (This process currently has a lock on the file.)";
-                    String newName = HighScoreProcessor.inputHighScoreName(newScore, prompt2);
-                    newHigh = new HighScore(newName, newScore);                  
-
-                    // BufferedReader br2 = new BufferedReader(new FileReader(new File("tempx")));  
-                    fileScores = HighScoreFile.readHighScoresFromFile(br);
-                    System.out.println("FileLockDemo:fileScores.size " + fileScores.size());
-                    fileScores.add(newHigh);  // add to list of highScores
-                    // sort, delete if too large
-                    Collections.sort(fileScores);
-                    while (fileScores.size() > MAX_HIGH_SCORES) fileScores.remove(MAX_HIGH_SCORES);
-
-                    raf.seek(0);  // without this print will write to after last read location.
-                    HighScoreFile.writeHighScoresToFile(fileScores, pw);
-                } // end if locked or not 
-            } catch (OverlappingFileLockException e) {
-                    reason = " because the file is already locked.";
-            } catch (ClosedChannelException e) {
-                    // this can be thrown during twr autoclose!! MJS 8.6.17
-                    reason = " because of a file lock problem (" + e.getClass().getSimpleName();
-                    reason += " exception). Try locking file after all reader/writers created!";
-            } catch (FileNotFoundException e) {
-                    reason = " because the file is not found: " + file;
-            } catch (IOException e) {
-                    reason = " because of an IO Exception for file: " + e.getClass().getSimpleName();
-            } catch (Exception e) {
-                    reason = " because of a Non-IO Exception creating file: " + e.getClass().getSimpleName();
-            } // end try-catch lock-file
-        } // end if canRWFile
-        if (reason == null || reason == "") {   // data added sucessfully - no fileLock or exceptions
-            highScores = fileScores;
-            displayTitle = "High Scores from File";
-        } else {   // add data to local copy of high scores
-            if (newHigh == null) {  // only ask for name if not already input.
-                prompt = "Input your name (To be recorded temporarily" + reason + ").";
-                String newName = HighScoreProcessor.inputHighScoreName(newScore, prompt);
-                newHigh = new HighScore(newName, newScore);
-            }  // end if newHigh==null      
-            highScores.add(newHigh);  // add to list of highScores
-            // sort, delete if too large
-            Collections.sort(highScores);
+        // reason null => not a high score, "" => saved to the file, MISSED_BOARD => beaten to the
+        // board, WINDOWED_ONLY => only made today's board, else why it was saved locally
+        String reason = addNewScoreAsync(newScore).join();
+        System.out.println("FileLockDemo:Add - score " + newScore + " reason = " + reason);
+        WindowedLeaderboards windows = windowedBoards;
+        if (reason == null) {
+            displayTitle = "High Scores";
+            reason = "A score of " + newScore + " did not make the high scores.";
+        } else if (reason.equals(WINDOWED_ONLY) && windows != null) {
+            displayHighScores(windows.getDaily(), "Today's High Scores");
+            return;
+        } else if (!savedOnlyLocally(reason)) {   // the file was read and written - no fileLock or exceptions
+            displayTitle = "High Scores of All Time";
+            if (!reason.isEmpty()) reason = "A score of " + newScore + " was not saved" + reason + ".";
+        } else {   // added to local copy of high scores
             System.out.println("FileLockDemo:Add - added local HS size is " + highScores.size());
-            while (highScores.size() > MAX_HIGH_SCORES) highScores.remove(MAX_HIGH_SCORES);
             displayTitle = "High Scores (Local Copy)";
             reason = "Could not save the new score to a file " + reason;
         }
@@ -288,6 +214,11 @@ public class FileLockDemo extends HighScoreProcessor implements Runnable, HighSc
         return HIGH_SCORE_FILENAME;
     }
 
+    @Override
+    public int getMaxHighScores( ) {
+        return MAX_HIGH_SCORES;
+    }
+
 
 } // end class FileLockDemo
 
@@ -0,0 +1,27 @@
+/* Dialog Name Provider - HighScoreNameProvider asking the player with a JOptionPane dialog.
+ - started 10.18.26
+ Each dialog is shown on a thread of its own, so requestName returns at once.
+*/
+
+package games;  // most games contain high scores
+import java.util.concurrent.CompletableFuture;
+
+// -------------------------------------------
+public class DialogNameProvider implements HighScoreNameProvider {
+
+    @Override
+    public CompletableFuture<String> requestName(int newScore, String prompt) {
+        CompletableFuture<String> name = new CompletableFuture<>();
+        Thread asker = new Thread(() -> {
+            try {
+                name.complete(HighScoreProcessor.inputHighScoreName(newScore, prompt));
+            } catch (RuntimeException e) {
+                name.completeExceptionally(e);   // such as no display to show the dialog on
+            }
+        }, "DialogNameProvider-" + newScore);
+        asker.setDaemon(true);
+        asker.start();
+        return name;
+    } // End requestName()
+
+} // end class DialogNameProvider
@@ -0,0 +1,197 @@
+/* High Score Binary File class - memory mapped, fixed size record version of HighScoreFile.
+ All methods static.  Header holds a magic number, version, record size and record count.
+ Each record holds score, epoch day and a UTF-8 name, so record i starts at
+ HEADER_SIZE + i * RECORD_SIZE and reading a score is pointer arithmetic instead of parsing.
+ - started 10.18.26
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;  // new Java8 date-time classes
+import java.util.ArrayList;
+import java.util.List;
+
+// -------------------------------------------
+public class HighScoreBinaryFile {
+
+    static final int MAGIC = 0x48534346;       // "HSCF"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;         // magic=4, version=2, record size=2, count=4, reserved=4
+    static final int RECORD_SIZE = 64;         // score=4, epoch day=4, name length=2, name=54
+    static final int NAME_BYTES = RECORD_SIZE - 10;
+
+    // header field positions
+    static final int VERSION_POS = 4;
+    static final int RECORD_SIZE_POS = 6;
+    static final int COUNT_POS = 8;
+    // record field offsets
+    static final int SCORE_OFFSET = 0;
+    static final int EPOCH_DAY_OFFSET = 4;
+    static final int NAME_LENGTH_OFFSET = 8;
+    static final int NAME_OFFSET = 10;
+
+    // instance variables - None, this is a static only class
+    // ----------------------------------------------------------------------------------------------
+
+    // ------------ HighScoreBinaryFile methods -----------------------------------------------------
+    // ----------------------------------------------------------------------------------------------
+
+    // Map an existing binary high score file for reading, after checking its header.
+    // Note the mapping stays valid after the file is closed, until garbage collected.
+    public static MappedByteBuffer mapForRead(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel fc = raf.getChannel()) {
+            MappedByteBuffer buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            checkHeader(buf);
+            return buf;
+        } // end try
+    } // End mapForRead()
+
+    // Throw IllegalArgumentException if buf does not hold a valid header and all its records.
+    public static void checkHeader(ByteBuffer buf) throws IllegalArgumentException {
+        if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("HighScoreBinaryFile: not a binary high score file.");
+        }
+        if (buf.getShort(VERSION_POS) != VERSION || buf.getShort(RECORD_SIZE_POS) != RECORD_SIZE) {
+            String eString = "HighScoreBinaryFile: unsupported version " + buf.getShort(VERSION_POS);
+            throw new IllegalArgumentException(eString + " record size " + buf.getShort(RECORD_SIZE_POS));
+        }
+        int count = buf.getInt(COUNT_POS);
+        if (count < 0 || HEADER_SIZE + (long) count * RECORD_SIZE > buf.limit()) {
+            throw new IllegalArgumentException("HighScoreBinaryFile: Illegal record count of " + count);
+        }
+    } // End checkHeader()
+
+    // these routines read fields directly out of a mapped (or any) buffer holding a checked file.
+    public static int getRecordCount(ByteBuffer buf) {
+        return buf.getInt(COUNT_POS);
+    }
+
+    public static int getScore(ByteBuffer buf, int index) {
+        return buf.getInt(recordPosition(index) + SCORE_OFFSET);
+    }
+
+    public static int getEpochDay(ByteBuffer buf, int index) {
+        return buf.getInt(recordPosition(index) + EPOCH_DAY_OFFSET);
+    }
+
+    public static String getName(ByteBuffer buf, int index) {
+        int pos = recordPosition(index);
+        int length = buf.getShort(pos + NAME_LENGTH_OFFSET);
+        if (length < 0 || length > NAME_BYTES) {
+            throw new IllegalArgumentException("HighScoreBinaryFile: Illegal name length of " + length);
+        }
+        byte[] nameBytes = new byte[length];
+        for (int i = 0; i < length; i++) nameBytes[i] = buf.get(pos + NAME_OFFSET + i);
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    public static HighScore getHighScore(ByteBuffer buf, int index) {
+        LocalDate date = LocalDate.ofEpochDay(getEpochDay(buf, index));
+        return new HighScore(getName(buf, index), getScore(buf, index), date);
+    }
+
+    // Store a high score as record index of buf - names too long for the record are cut short.
+    public static void putHighScore(ByteBuffer buf, int index, HighScore hs) {
+        int pos = recordPosition(index);
+        byte[] nameBytes = encodeName(hs.getName());
+        buf.putInt(pos + SCORE_OFFSET, hs.getScore());
+        buf.putInt(pos + EPOCH_DAY_OFFSET, (int) hs.getDate().toEpochDay());
+        buf.putShort(pos + NAME_LENGTH_OFFSET, (short) nameBytes.length);
+        for (int i = 0; i < NAME_BYTES; i++) {
+            buf.put(pos + NAME_OFFSET + i, (i < nameBytes.length) ? nameBytes[i] : 0);
+        }
+    } // End putHighScore()
+
+    // Write the header for count records at the start of buf.
+    public static void putHeader(ByteBuffer buf, int count) {
+        buf.putInt(0, MAGIC);
+        buf.putShort(VERSION_POS, VERSION);
+        buf.putShort(RECORD_SIZE_POS, (short) RECORD_SIZE);
+        buf.putInt(COUNT_POS, count);
+        buf.putInt(COUNT_POS + 4, 0);   // reserved
+    } // End putHeader()
+
+    // file position of record index
+    public static int recordPosition(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+
+    // this routine should retrieve values in binary high score file
+    // can throw exception for many reasons - any exception implies value returned incorrect.
+    public static List<HighScore> readHighScoresFromFile(File file) throws IOException {
+        MappedByteBuffer buf = mapForRead(file);
+        int count = getRecordCount(buf);
+        List<HighScore> highList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            highList.add(getHighScore(buf, i));
+        } // end for
+        return highList;
+    } // End readHighScoresFromFile()
+
+
+    // Write values in high score list to a binary file, replacing anything already there.
+    public static void writeHighScoresToFile(List<HighScore> highScores, File file) throws IOException {
+        long size = HEADER_SIZE + (long) highScores.size() * RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel fc = raf.getChannel()) {
+            raf.setLength(size);   // must truncate before mapping, mapped files cant shrink
+            MappedByteBuffer buf = fc.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            putHeader(buf, highScores.size());
+            for (int i = 0; i < highScores.size(); i++) {
+                putHighScore(buf, i, highScores.get(i));
+            } // end for
+            buf.force();
+        } // end try-with-resources
+    } // End writeHighScoresToFile()
+
+
+    // Convert a text high score file to a binary one, so processes can migrate.
+    public static void convertTextToBinary(File textFile, File binaryFile) throws Exception {
+        writeHighScoresToFile(HighScoreFile.readHighScoresFromFile(textFile), binaryFile);
+    } // End convertTextToBinary()
+
+    // Convert a binary high score file back to the text format.
+    public static void convertBinaryToText(File binaryFile, File textFile) throws IOException {
+        HighScoreFile.writeHighScoresToFile(readHighScoresFromFile(binaryFile), textFile);
+    } // End convertBinaryToText()
+
+
+    // UTF-8 name bytes, cut at a character boundary if longer than NAME_BYTES.
+    static byte[] encodeName(String name) {
+        if (name == null) name = "";
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length <= NAME_BYTES) return nameBytes;
+        int length = NAME_BYTES;
+        while (length > 0 && (nameBytes[length] & 0xC0) == 0x80) length--;  // dont split a character
+        byte[] cut = new byte[length];
+        System.arraycopy(nameBytes, 0, cut, 0, length);
+        return cut;
+    } // End encodeName()
+
+
+    // Command line converter: HighScoreBinaryFile toBinary|toText inputFile outputFile
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.out.println("Usage: java games.HighScoreBinaryFile toBinary|toText inputFile outputFile");
+            return;
+        }
+        File in = new File(args[1]);
+        File out = new File(args[2]);
+        if (args[0].equals("toBinary")) {
+            convertTextToBinary(in, out);
+        } else if (args[0].equals("toText")) {
+            convertBinaryToText(in, out);
+        } else {
+            System.out.println("Unknown conversion " + args[0] + " - use toBinary or toText.");
+        }
+    } // end main
+
+} // end class HighScoreBinaryFile
@@ -11,4 +11,10 @@ public interface HighScoreClassInfo {
     // abstract methods -------------------------
     String getHighScoreFileName( );
 
+    // default methods --------------------------
+    // number of high scores kept on this board
+    default int getMaxHighScores( ) {
+        return HighScoreProcessor.MAX_HIGH_SCORES;
+    }
+
 }  // end interface HighScoreClassInfo
@@ -0,0 +1,119 @@
+/* High Score Encoder class - writes high score records straight into bytes.  All methods static
+ - started 10.18.26
+ Each record comes out exactly as writeHighScoresToFile(highScores, PrintWriter) prints it
+ ("%-30s,%9d,%tY-%<1tm-%<2td" and a line separator, in the default charset), but is put a byte
+ at a time into a reusable direct ByteBuffer - no format string parsing, no Strings and no
+ charset encoder.  Records that the shortcut cant be sure to match (a null or non ASCII name, a
+ negative score, a year outside 1 to 9999 - printf shows years of an era - or a locale without
+ ASCII digits) are formatted the old way, so the bytes are always the same.
+*/
+
+package games;  // most games contain high scores
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+// -------------------------------------------
+public class HighScoreEncoder {
+
+    static final int NAME_WIDTH = 30;
+    static final int SCORE_WIDTH = 9;
+    static final int INITIAL_CAPACITY = 8192;
+    static final int RETAIN_LIMIT = 1 << 20;   // a buffer grown past this is dropped once lists are small again
+
+    // each thread's buffer, reused by every encode on that thread
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+        }
+    };
+
+    // instance variables - None, this is a static only class
+    // ----------------------------------------------------------------------------------------------
+
+    // ------------ HighScoreEncoder methods --------------------------------------------------------
+    // ----------------------------------------------------------------------------------------------
+
+    // Bytes of a whole high score file holding highScores, in this thread's direct buffer (from its
+    // position to its limit).  Only good until this thread's next encode - write it out before then.
+    public static ByteBuffer encode(List<HighScore> highScores) {
+        byte[] lineEnd = System.lineSeparator().getBytes(Charset.defaultCharset());
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);   // as printf uses
+        boolean shortcut = HighScoreFile.isAsciiDefaultCharset()
+                           && DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+        int estimate = highScores.size() * (NAME_WIDTH + 22 + lineEnd.length);
+        ByteBuffer bb = BUFFERS.get();
+        if (bb.capacity() < estimate || (bb.capacity() > RETAIN_LIMIT && bb.capacity() > 2 * estimate)) {
+            bb = ByteBuffer.allocateDirect(Math.max(INITIAL_CAPACITY, estimate));
+            BUFFERS.set(bb);
+        }
+        bb.clear();
+        for (HighScore hs: highScores) {
+            String name = hs.getName();
+            LocalDate date = hs.getDate();
+            if (shortcut && name != null && date != null && hs.getScore() >= 0
+                && date.getYear() >= 1 && date.getYear() <= 9999 && isAscii(name)) {
+                bb = ensureRemaining(bb, Math.max(name.length(), NAME_WIDTH) + 22 + lineEnd.length);
+                putRecord(bb, name, hs.getScore(), date);
+            } else {
+                byte[] record = String.format(locale, "%-30s,%9d,%tY-%<1tm-%<2td", name, hs.getScore(), date)
+                                      .getBytes(Charset.defaultCharset());
+                bb = ensureRemaining(bb, record.length + lineEnd.length);
+                bb.put(record);
+            }
+            bb.put(lineEnd);
+        } // end for highScores
+        bb.flip();
+        return bb;
+    } // End encode()
+
+    // name (left justified in 30), score (right justified in 9) and yyyy-mm-dd date, comma separated
+    private static void putRecord(ByteBuffer bb, String name, int score, LocalDate date) {
+        int length = name.length();
+        for (int i = 0; i < length; i++) bb.put((byte) name.charAt(i));
+        for (int i = length; i < NAME_WIDTH; i++) bb.put((byte) ' ');
+        bb.put((byte) ',');
+        int digits = 1;
+        for (int rest = score / 10; rest > 0; rest /= 10) digits++;
+        for (int i = digits; i < SCORE_WIDTH; i++) bb.put((byte) ' ');
+        putDigits(bb, score, digits);
+        bb.put((byte) ',');
+        putDigits(bb, date.getYear(), 4);
+        bb.put((byte) '-');
+        putDigits(bb, date.getMonthValue(), 2);
+        bb.put((byte) '-');
+        putDigits(bb, date.getDayOfMonth(), 2);
+    } // End putRecord()
+
+    // value (not negative) as exactly digits decimal digits, zero filled
+    private static void putDigits(ByteBuffer bb, int value, int digits) {
+        int end = bb.position() + digits;
+        for (int pos = end - 1; pos >= end - digits; pos--) {
+            bb.put(pos, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        bb.position(end);
+    } // End putDigits()
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    } // End isAscii()
+
+    // bb, or a bigger copy of it (which becomes this thread's buffer) if it has less than needed left
+    private static ByteBuffer ensureRemaining(ByteBuffer bb, int needed) {
+        if (bb.remaining() >= needed) return bb;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(bb.capacity() * 2, bb.position() + needed));
+        bb.flip();
+        bigger.put(bb);
+        BUFFERS.set(bigger);
+        return bigger;
+    } // End ensureRemaining()
+
+} // end class HighScoreEncoder
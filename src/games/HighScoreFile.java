@@ -4,21 +4,45 @@
 
 package games;  // most games contain high scores  
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.InputStream;
 import java.io.IOException;
 import java.io.PrintWriter;  // allows formatted printf style writes
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
 import java.time.LocalDate;  // new Java8 date-time classes
 import java.util.List;       
 import java.util.ArrayList; 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import util.FlightEvents;
  
 // -------------------------------------------
 public class HighScoreFile {
 
     private static final int MIN_LINE_LENGTH = 48;    // line length in file (name=30,score=10,date=8)
+    private static final int RECORD_LINE_LENGTH = 51; // line as written - name=30, ',', score=9, ',', date=10
+    private static final int READ_BUFFER_SIZE = 8192;  // initial buffer size for byte level reads
+    // byte level parsing needs ASCII text to decode the same as the FileReader default charset does
+    private static final boolean ASCII_DEFAULT_CHARSET = isAsciiCompatible(Charset.defaultCharset());
     // private static final String HIGH_SCORE_FILENAME2 = "RoidHighScores2.txt";
 
     // instance variables - None, this is a static only class
@@ -41,11 +65,130 @@ public class HighScoreFile {
     } // End readHighScoresFromFile()
 
 
+    // Byte level version of readHighScoresFromFile(br) - lines are parsed in place in a reused buffer,
+    // rather than turned into Strings by readLine.  Lines end in \n, \r or \r\n just as for readLine.
+    // can throw exception for many reasons - any exception implies value returned incorrect.
+    public static List<HighScore> readHighScoresFromFile(InputStream is) throws IOException {
+        return readHighScoresFromFile(is, "stream");
+    } // End readHighScoresFromFile()
+
+    // source - what is read, for the JFR read event
+    private static List<HighScore> readHighScoresFromFile(InputStream is, String source) throws IOException {
+        Object event = FlightEvents.get().beginRead();   // null unless being recorded
+        List<HighScore> highList = new ArrayList<> ();
+        RecordReader records = new RecordReader(is);
+        HighScore hs;
+        while ((hs = records.read()) != null) {
+            highList.add(hs);
+        } // end while
+        if (event != null) FlightEvents.get().commitRead(event, source, highList.size(), records.bytes);
+        return highList;
+    } // End readHighScoresFromFile()
+
+
+    // Lazy version of readHighScoresFromFile(is) - each record is parsed only as the stream gets to it,
+    // so no list of the whole file is built.  Read errors come out as UncheckedIOException, bad lines
+    // as IllegalArgumentException.  Closing the stream closes is.
+    public static Stream<HighScore> streamHighScores(InputStream is) {
+        RecordReader records = new RecordReader(is);
+        Iterator<HighScore> iterator = new Iterator<HighScore>() {
+            private HighScore next = null;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = records.read();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public HighScore next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                HighScore hs = next;
+                next = null;
+                return hs;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                                    Spliterator.ORDERED | Spliterator.NONNULL), false)
+                            .onClose(() -> {
+                                try {
+                                    is.close();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+    } // End streamHighScores()
+
+    // Lazy stream of the records of file - close it (try with resources) to close the file.
+    public static Stream<HighScore> streamHighScores(File file) throws FileNotFoundException {
+        return streamHighScores(new FileInputStream(file));
+    } // End streamHighScores()
+
+    // Lazy String based version, for readers already open.  Closing the stream closes br.
+    public static Stream<HighScore> streamHighScores(BufferedReader br) {
+        return br.lines().map(HighScoreFile::lineParse).onClose(() -> {
+            try {
+                br.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    } // End streamHighScores()
+
+
+    // Best n high scores of records, highest first, holding no more than n at a time.
+    // sorted - records are known to be best first (as every writer here leaves the file), so
+    // reading stops after n of them.  Otherwise every record is scanned, keeping a running top n.
+    public static List<HighScore> readTopHighScores(Stream<HighScore> records, int n, boolean sorted) {
+        if (n < 1) throw new IllegalArgumentException("Must read at least 1 high score: " + n);
+        if (sorted) return records.limit(n).collect(Collectors.toCollection(ArrayList::new));
+        Leaderboard top = new Leaderboard(n);
+        records.forEach(top::add);
+        return top.toList();
+    } // End readTopHighScores()
+
+    // Best n high scores of file, highest first - see readTopHighScores(records, n, sorted).
+    public static List<HighScore> readTopHighScores(File file, int n, boolean sorted) throws IOException {
+        try (Stream<HighScore> records = streamHighScores(file)) {
+            return readTopHighScores(records, n, sorted);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    } // End readTopHighScores()
+
+
+    // Byte level version for a buffer (such as a mapped or channel read file) holding whole lines
+    // from its position to its limit.
+    public static List<HighScore> readHighScoresFromFile(ByteBuffer bb) {
+        Object event = FlightEvents.get().beginRead();
+        List<HighScore> highList = new ArrayList<> ();
+        int lineStart = bb.position();
+        int end = bb.limit();
+        for (int i = lineStart; i < end; i++) {
+            byte b = bb.get(i);
+            if (b == '\n' || b == '\r') {
+                highList.add(lineParse(bb, lineStart, i - lineStart));
+                if (b == '\r' && i + 1 < end && bb.get(i + 1) == '\n') i++;
+                lineStart = i + 1;
+            }
+        } // end for
+        if (lineStart < end) highList.add(lineParse(bb, lineStart, end - lineStart));
+        if (event != null) FlightEvents.get().commitRead(event, "buffer", highList.size(), end - bb.position());
+        return highList;
+    } // End readHighScoresFromFile()
+
+
     // this routine should retrieve values in high score file 
     // can throw exception for many reasons - any exception implies value returned incorrect.
     public static List<HighScore> readHighScoresFromFile(File file) throws Exception {
-        try (BufferedReader br = new BufferedReader(new FileReader(file));) {
-             return readHighScoresFromFile(br);
+        try (InputStream is = new FileInputStream(file);) {
+             return readHighScoresFromFile(is, file.getPath());
         } // end try
     } // End readHighScoresFromFile()
 
@@ -76,12 +219,22 @@ public class HighScoreFile {
 
 
     // Write values in high score list to a file by callinb overloaded version with a PrintWriter 
+    // The records are encoded straight into a direct buffer (see HighScoreEncoder), written with one
+    // channel write, then the file is cut to their length - the same bytes as the PrintWriter version.
     public static void writeHighScoresToFile(List<HighScore> highScores, File file) throws IOException {
         // System.out.println("Starting Write High Scores To File");
-        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));) {
+        Object event = FlightEvents.get().beginWrite();   // null unless being recorded
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel fc = raf.getChannel();) {
              System.out.println("Starting writes to file " + file); 
-             writeHighScoresToFile(highScores, pw);
+             ByteBuffer bb = HighScoreEncoder.encode(highScores);
+             int length = bb.remaining();
+             while (bb.hasRemaining()) {
+                 fc.write(bb, bb.position());
+             }
+             if (fc.size() > length) fc.truncate(length);
         } // end try-with resources
+        if (event != null) FlightEvents.get().commitWrite(event, file.getPath(), highScores.size(), file.length());
     } // End writeHighScoresToFile()
 
     // Write values in high score list to a file whose path/name is determined via classReference
@@ -97,17 +250,301 @@ public class HighScoreFile {
     } // End writeHighScoresToFile()
 
 
+    // Write high scores to a temp file beside file, force it to disk, then rename it over file in one
+    // atomic step.  A reader opening file gets either the old or the new file whole, with no lock -
+    // one that already has the old file open keeps reading the old one.  Writers must still take
+    // turns (such as by locking a sidecar file), or one writer's file replaces the others'.
+    public static void publishHighScores(List<HighScore> highScores, File file) throws IOException {
+        Object event = FlightEvents.get().beginWrite();
+        long bytes = 0;
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+        try {
+            if (Files.exists(target)) {   // temp files are owner only - keep the permissions file had
+                try {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException e) {
+                    // not a posix file system
+                }
+            }
+            try (FileChannel fc = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer bb = HighScoreEncoder.encode(highScores);
+                bytes = bb.remaining();
+                while (bb.hasRemaining()) fc.write(bb);
+                fc.force(true);   // contents on disk before the rename makes them visible
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);   // best this file system can do
+            }
+        } finally {
+            Files.deleteIfExists(temp);   // only still there if something failed
+        }
+        if (event != null) FlightEvents.get().commitWrite(event, file.getPath(), highScores.size(), bytes);
+    } // End publishHighScores()
+
+
+    // Whole file as it would be written by writeHighScoresToFile (used for channel writes).
+    public static byte[] toBytes(List<HighScore> highScores) {
+        ByteBuffer bb = HighScoreEncoder.encode(highScores);
+        byte[] bytes = new byte[bb.remaining()];
+        bb.get(bytes);
+        return bytes;
+    } // End toBytes()
+
+    // Read the whole file of fc, from its start, into a buffer - the channel position is unchanged.
+    public static ByteBuffer readBytes(FileChannel fc) throws IOException {
+        long size = fc.size();
+        if (size > Integer.MAX_VALUE) throw new IOException("High score file too large: " + size);
+        ByteBuffer bb = ByteBuffer.allocate((int) size);
+        while (bb.hasRemaining()) {
+            if (fc.read(bb, bb.position()) < 0) break;   // file shrank while reading
+        }
+        bb.flip();
+        return bb;
+    } // End readBytes()
+
+    // Write bytes from start onwards at the same position in fc, then cut fc to the length of bytes.
+    public static void writeBytes(FileChannel fc, byte[] bytes, int start) throws IOException {
+        Object event = FlightEvents.get().beginWrite();
+        ByteBuffer bb = ByteBuffer.wrap(bytes, start, bytes.length - start);
+        while (bb.hasRemaining()) {
+            fc.write(bb, bb.position());
+        }
+        if (fc.size() > bytes.length) fc.truncate(bytes.length);
+        if (event != null) FlightEvents.get().commitWrite(event, "channel", -1, bytes.length - start);
+    } // End writeBytes()
+
+
+    // ------------ fixed width records --------------------------------------------------------------
+    // Every record written here is HighScoreFileRegions.getRecordLength() bytes (name padded to 30),
+    // and files are kept best first, so a record can be found by seeking rather than reading the
+    // whole file.  A file with a line of another length (such as a name over 30 characters, or
+    // another system's line separator) is caught when a record read is not one whole line, and
+    // these methods then return -1 (or null, or false) so callers can read the whole file instead.
+
+    // Record index of fc, read with one positional read - null if it isnt a whole fixed width line.
+    public static HighScore readRecord(FileChannel fc, int index) throws IOException {
+        int recordLength = HighScoreFileRegions.getRecordLength();
+        int lineLength = getRecordLineLength();
+        ByteBuffer bb = ByteBuffer.allocate(recordLength);
+        long position = HighScoreFileRegions.recordPosition(index);
+        while (bb.hasRemaining()) {
+            if (fc.read(bb, position + bb.position()) < 0) return null;   // past the end
+        }
+        String separator = System.lineSeparator();
+        for (int i = 0; i < recordLength; i++) {
+            byte b = bb.get(i);
+            boolean lineEnd = (b == '\n' || b == '\r');
+            if (i < lineLength ? lineEnd : b != separator.charAt(i - lineLength)) return null;
+        }
+        if (bb.get(30) != ',' || bb.get(40) != ',') return null;   // not aligned on a record
+        try {
+            return lineParse(bb, 0, lineLength);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return null;
+        }
+    } // End readRecord()
+
+    // Records from index first up to (not including) index end - null if any isnt fixed width.
+    public static List<HighScore> readRecords(FileChannel fc, int first, int end) throws IOException {
+        List<HighScore> records = new ArrayList<>(Math.max(0, end - first));
+        for (int i = first; i < end; i++) {
+            HighScore hs = readRecord(fc, i);
+            if (hs == null) return null;
+            records.add(hs);
+        }
+        return records;
+    } // End readRecords()
+
+    // Number of records in fc, or -1 if its size isnt a whole number of fixed width records.
+    public static int getRecordCount(FileChannel fc) throws IOException {
+        long size = fc.size();
+        int recordLength = HighScoreFileRegions.getRecordLength();
+        if (size % recordLength != 0 || size / recordLength > Integer.MAX_VALUE) return -1;
+        return (int) (size / recordLength);
+    } // End getRecordCount()
+
+    // Score a new score must beat to make a board of maxHighScores, from a read of just the record
+    // at the cutoff - 0 if the board isnt full.  Returns -1 if fc isnt fixed width records.
+    public static int readCutoffScore(FileChannel fc, int maxHighScores) throws IOException {
+        int count = getRecordCount(fc);
+        if (count < 0) return -1;
+        if (count < maxHighScores) return 0;
+        HighScore cutoff = readRecord(fc, maxHighScores - 1);
+        return (cutoff == null) ? -1 : cutoff.getScore();
+    } // End readCutoffScore()
+
+    // Index a record scoring score goes in, by binary search of the sorted file - after every record
+    // scoring at least as much (ties keep the earlier record first, as Leaderboard does).
+    // Reads O(log n) records.  Returns -1 if fc isnt fixed width records.
+    public static int findInsertIndex(FileChannel fc, int score) throws IOException {
+        int low = 0;
+        int high = getRecordCount(fc);
+        if (high < 0) return -1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            HighScore hs = readRecord(fc, middle);
+            if (hs == null) return -1;
+            if (hs.getScore() >= score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        } // end while
+        return low;
+    } // End findInsertIndex()
+
+    // Insert hs as record index (see findInsertIndex) of the sorted file, keeping at most maxHighScores
+    // records: only the records from index on are read, moved down one place and written back.
+    // The caller must hold the file from record index on locked against other writers.
+    // Returns false, having written nothing, if hs doesnt make the board (index >= maxHighScores - the
+    // caller should check that first), or hs or the moved records arent fixed width.
+    public static boolean insertHighScore(FileChannel fc, int index, HighScore hs, int maxHighScores)
+                                          throws IOException {
+        int recordLength = HighScoreFileRegions.getRecordLength();
+        int count = getRecordCount(fc);
+        if (count < 0 || index < 0 || index > count || index >= maxHighScores) return false;
+        ByteBuffer record = HighScoreEncoder.encode(Collections.singletonList(hs));
+        if (record.remaining() != recordLength) return false;   // such as a name over 30 characters
+        int newCount = Math.min(count + 1, maxHighScores);
+        int moved = newCount - 1 - index;                       // records after index still kept
+        ByteBuffer bb = ByteBuffer.allocate((moved + 1) * recordLength);
+        bb.put(record);
+        long position = HighScoreFileRegions.recordPosition(index);
+        while (bb.hasRemaining()) {
+            if (fc.read(bb, position + bb.position() - recordLength) < 0) return false;   // file shrank
+        }
+        for (int i = 1; i <= moved; i++) {   // every moved record must still be a whole line
+            int start = i * recordLength;
+            if (bb.get(start + recordLength - 1) != '\n' || bb.get(start + 30) != ',' || bb.get(start + 40) != ',') {
+                return false;
+            }
+        }
+        Object event = FlightEvents.get().beginWrite();
+        bb.flip();
+        while (bb.hasRemaining()) {
+            fc.write(bb, position + bb.position());
+        }
+        long newSize = HighScoreFileRegions.recordPosition(newCount);
+        if (fc.size() > newSize) fc.truncate(newSize);
+        if (event != null) FlightEvents.get().commitWrite(event, "record " + index, moved + 1, bb.limit());
+        return true;
+    } // End insertHighScore()
+
+
   public static HighScore lineParse(String s) throws IllegalArgumentException {
-      if (s.length() < getMinLineLength()) {
-          String eString = "HighScore: lineParse: Illegal line length of " + s.length();
-          throw new IllegalArgumentException(eString + " for text: " + s);
-      } 
-      String newName = s.substring(0, 30);  // line(30) is a comma
-      int newScore = Integer.parseInt(s.substring(31, 40).trim());  // must trim leading blanks!!
-      LocalDate newDate = LocalDate.parse(s.substring(41).trim());  // must trim even trailing blanks
-      return new HighScore(newName, newScore, newDate);
+      try {
+          if (s.length() < getMinLineLength()) {
+              String eString = "HighScore: lineParse: Illegal line length of " + s.length();
+              throw new IllegalArgumentException(eString + " for text: " + s);
+          } 
+          String newName = s.substring(0, 30);  // line(30) is a comma
+          int newScore = Integer.parseInt(s.substring(31, 40).trim());  // must trim leading blanks!!
+          LocalDate newDate = LocalDate.parse(s.substring(41).trim());  // must trim even trailing blanks
+          return new HighScore(newName, newScore, newDate);
+      } catch (RuntimeException e) {   // byte level parses end up here too, for any line in error
+          FlightEvents.get().parseError(s, e.toString());
+          throw e;
+      }
+  } // End lineParse
+
+
+  // Byte level lineParse of the length bytes at start in bb (line end not included). Score and date
+  // digits are parsed in place, only the name becomes a String. Anything unusual - non ASCII text,
+  // signs, odd dates, or errors - is handed to lineParse(String) so results and exceptions match it.
+  public static HighScore lineParse(ByteBuffer bb, int start, int length) throws IllegalArgumentException {
+      if (length < getMinLineLength() || !ASCII_DEFAULT_CHARSET) return lineParse(decodeLine(bb, start, length));
+      int end = start + length;
+      char[] nameChars = new char[30];
+      for (int i = 0; i < length; i++) {
+          byte b = bb.get(start + i);
+          if (b < 0) return lineParse(decodeLine(bb, start, length));   // non ASCII
+          if (i < 30) nameChars[i] = (char) b;
+      }
+
+      // score - like Integer.parseInt(substring(31, 40).trim())
+      int pos = start + 31;
+      int scoreEnd = start + 40;
+      while (pos < scoreEnd && (bb.get(pos) & 0xFF) <= ' ') pos++;
+      while (scoreEnd > pos && (bb.get(scoreEnd - 1) & 0xFF) <= ' ') scoreEnd--;
+      if (pos == scoreEnd) return lineParse(decodeLine(bb, start, length));
+      int newScore = 0;
+      for (; pos < scoreEnd; pos++) {
+          int digit = bb.get(pos) - '0';
+          // 9 digits can't overflow an int
+          if (digit < 0 || digit > 9) return lineParse(decodeLine(bb, start, length));
+          newScore = newScore * 10 + digit;
+      }
+
+      // date - like LocalDate.parse(substring(41).trim()), for yyyy-mm-dd dates only
+      pos = start + 41;
+      int dateEnd = end;
+      while (pos < dateEnd && (bb.get(pos) & 0xFF) <= ' ') pos++;
+      while (dateEnd > pos && (bb.get(dateEnd - 1) & 0xFF) <= ' ') dateEnd--;
+      if (dateEnd - pos != 10 || bb.get(pos + 4) != '-' || bb.get(pos + 7) != '-') {
+          return lineParse(decodeLine(bb, start, length));
+      }
+      int year = parseDigits(bb, pos, 4);
+      int month = parseDigits(bb, pos + 5, 2);
+      int day = parseDigits(bb, pos + 8, 2);
+      if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+          return lineParse(decodeLine(bb, start, length));
+      }
+      LocalDate newDate;
+      try {
+          newDate = LocalDate.of(year, month, day);
+      } catch (DateTimeException e) {   // such as Feb 30 - let LocalDate.parse throw its exception
+          return lineParse(decodeLine(bb, start, length));
+      }
+      return new HighScore(new String(nameChars), newScore, newDate);
+  } // End lineParse
+
+  // byte[] version of byte level lineParse
+  public static HighScore lineParse(byte[] bytes, int start, int length) throws IllegalArgumentException {
+      return lineParse(ByteBuffer.wrap(bytes), start, length);
   } // End lineParse
 
+  // value of count ASCII digits at pos in bb, or -1 if any are not digits
+  private static int parseDigits(ByteBuffer bb, int pos, int count) {
+      int value = 0;
+      for (int i = pos; i < pos + count; i++) {
+          int digit = bb.get(i) - '0';
+          if (digit < 0 || digit > 9) return -1;
+          value = value * 10 + digit;
+      }
+      return value;
+  } // End parseDigits
+
+  // line as a String, decoded the same way FileReader would (for the slow path only)
+  private static String decodeLine(ByteBuffer bb, int start, int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) bytes[i] = bb.get(start + i);
+      return new String(bytes, Charset.defaultCharset());
+  } // End decodeLine
+
+  // true if the default charset decodes ASCII bytes to the same chars and encodes them back to the same bytes.
+  static boolean isAsciiDefaultCharset() {
+      return ASCII_DEFAULT_CHARSET;
+  }
+
+  private static boolean isAsciiCompatible(Charset charset) {
+      byte[] ascii = new byte[128];
+      for (int i = 0; i < ascii.length; i++) ascii[i] = (byte) i;
+      String decoded = new String(ascii, charset);
+      if (decoded.length() != ascii.length) return false;
+      for (int i = 0; i < ascii.length; i++) {
+          if (decoded.charAt(i) != i) return false;
+      }
+      return Arrays.equals(decoded.getBytes(charset), ascii);
+  } // End isAsciiCompatible
+
+  // length of every line written with a name of at most 30 characters, not counting the line separator
+  public static int getRecordLineLength() {
+      return RECORD_LINE_LENGTH;
+  }
+
   // get the minimum line length
   public static int getMinLineLength() {
       return MIN_LINE_LENGTH;  // use routine so subclasses can easily change and use this
@@ -130,5 +567,73 @@ public class HighScoreFile {
 
     } // End getClassPath(inObject objectType)
 
+
+    // ------------ RecordReader class - parses records one at a time from a stream ----------------
+    // Lines are parsed in place in a reused buffer, rather than turned into Strings by readLine.
+    // Lines end in \n, \r or \r\n just as for readLine.  The buffer only grows for a line too long to fit.
+    private static class RecordReader {
+        private final InputStream is;
+        private byte[] buf = new byte[READ_BUFFER_SIZE];
+        private ByteBuffer bb = ByteBuffer.wrap(buf);
+        private int filled = 0;           // bytes in buf
+        private int lineStart = 0;        // start of line not yet parsed
+        private int scanned = 0;          // bytes already checked for a line end
+        private boolean skipLF = false;   // last line ended with \r, so skip a following \n
+        private boolean atEnd = false;    // is has no more bytes
+        long bytes = 0;                   // read from is so far
+
+        RecordReader(InputStream is) {
+            this.is = is;
+        }
+
+        // next record, or null at the end of the stream
+        HighScore read() throws IOException {
+            while (true) {
+                for (; scanned < filled; scanned++) {
+                    byte b = buf[scanned];
+                    if (skipLF) {
+                        skipLF = false;
+                        if (b == '\n') {
+                            lineStart = scanned + 1;
+                            continue;
+                        }
+                    }
+                    if (b == '\n' || b == '\r') {
+                        int start = lineStart;
+                        int length = scanned - lineStart;
+                        lineStart = ++scanned;
+                        skipLF = (b == '\r');
+                        return lineParse(bb, start, length);
+                    }
+                } // end for
+                if (atEnd) {
+                    if (lineStart == filled) return null;
+                    int start = lineStart;   // last line had no line end
+                    lineStart = filled;
+                    return lineParse(bb, start, filled - start);
+                }
+                // move partial line to start of buffer, growing buffer if a line is too long to fit
+                filled -= lineStart;
+                if (filled == buf.length) {
+                    byte[] bigger = new byte[buf.length * 2];
+                    System.arraycopy(buf, lineStart, bigger, 0, filled);
+                    buf = bigger;
+                    bb = ByteBuffer.wrap(buf);
+                } else if (lineStart > 0) {
+                    System.arraycopy(buf, lineStart, buf, 0, filled);
+                }
+                lineStart = 0;
+                scanned = filled;
+                int n = is.read(buf, filled, buf.length - filled);
+                if (n == -1) {
+                    atEnd = true;
+                } else {
+                    filled += n;
+                    bytes += n;
+                }
+            } // end while
+        } // End read()
+    } // end class RecordReader
+
 } // end class HighScoreFile
 
@@ -0,0 +1,276 @@
+/* High Score File Async class - non blocking versions of the HighScoreFile reads and writes.  All methods static
+ - started 10.18.26
+ Each method returns a CompletableFuture at once, so the caller (such as a game loop) never waits on
+ a busy file.  Calls work through the file's FileLockCoordinator channel - closing a channel of their
+ own would drop every lock this JVM holds on the file, including ones taken outside the coordinator.
+ The same byte ranges as HighScoreFileRegions are locked: readers lock the records shared, writers
+ lock the header and then the records exclusive, and readers take the header shared for a moment
+ first so they never overtake a writer - so async and blocking callers in other processes take
+ turns properly.  Async calls on one file in this JVM run one after another.  No thread waits
+ for a lock: the coordinator turn and then the FileLocks are tried, and tried again every
+ RETRY_MILLIS on a timer, and only the reading and writing run on a (daemon) I/O thread.
+ AsynchronousFileChannel.lock() is not used: a pending lock() can only be given up (on a timeout or
+ cancel) by closing its channel, which drops every lock this JVM holds on the file - and on Linux
+ it just waits in a blocking lock call on a pool thread anyway.  Retrying every millisecond costs
+ about half a millisecond once the lock is free (see LockStrategyBenchmark).
+ Every call takes a timeout in millisecs - the future fails with a TimeoutException if the call hasnt
+ begun writing by then.  A timeout or cancel stops a call before it writes, never during: a write
+ once begun runs to the end, so the file is never left half written, and its locks are released
+ after.  Once the write has begun cancel() returns false and the future completes as the write
+ does, so a future that failed always means nothing was written.  A read is just abandoned.
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import util.FileLockCoordinator;
+
+// -------------------------------------------
+public class HighScoreFileAsync {
+
+    static final long RETRY_MILLIS = 1;    // wait before retrying a lock held elsewhere
+
+    // timer for timeouts and lock retries - a daemon so it never keeps the application running
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "HighScoreFileAsync-timer");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    // reads and writes of locked files - daemons too.  Also runs HighScoreProcessor's blocking saves.
+    static final ExecutorService IO = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "HighScoreFileAsync-io");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    // last call queued on each file (by canonical path), so calls on a file run one after another
+    private static final ConcurrentMap<String, CompletableFuture<?>> TAILS = new ConcurrentHashMap<>();
+
+    // instance variables - None, this is a static only class
+    // ----------------------------------------------------------------------------------------------
+
+    // ------------ HighScoreFileAsync methods ------------------------------------------------------
+    // ----------------------------------------------------------------------------------------------
+
+    // Read the high scores in file, under a shared lock of its records.
+    public static CompletableFuture<List<HighScore>> readHighScoresAsync(File file, long timeout) {
+        return withLockedFile(file, false, timeout,
+                              (fc, call) -> HighScoreFile.readHighScoresFromFile(HighScoreFile.readBytes(fc)));
+    } // End readHighScoresAsync()
+
+    // Replace the high scores in file, under exclusive header and record locks.
+    public static CompletableFuture<Void> writeHighScoresAsync(List<HighScore> highScores, File file, long timeout) {
+        byte[] bytes = HighScoreFile.toBytes(highScores);
+        return withLockedFile(file, true, timeout, (fc, call) -> {
+            write(fc, bytes, call);
+            return null;
+        });
+    } // End writeHighScoresAsync()
+
+    // Lock file, read it, add newHighs, keep the best maxHighScores, write it back, unlock - the
+    // async version of HighScoreProcessor.saveHighScoresToFile.  Completes with the new high scores.
+    public static CompletableFuture<List<HighScore>> submitScoresAsync(List<HighScore> newHighs, File file,
+                                                                         int maxHighScores, long timeout) {
+        return withLockedFile(file, true, timeout, (fc, call) -> {
+            List<HighScore> scores = HighScoreFile.readHighScoresFromFile(HighScoreFile.readBytes(fc));
+            scores.addAll(newHighs);
+            List<HighScore> top = Leaderboard.topOf(scores, maxHighScores);
+            write(fc, HighScoreFile.toBytes(top), call);
+            return top;
+        });
+    } // End submitScoresAsync()
+
+    public static CompletableFuture<List<HighScore>> submitScoreAsync(HighScore newHigh, File file,
+                                                                        int maxHighScores, long timeout) {
+        List<HighScore> newHighs = new ArrayList<>();
+        newHighs.add(newHigh);
+        return submitScoresAsync(newHighs, file, maxHighScores, timeout);
+    } // End submitScoreAsync()
+
+
+    // Run op on file's coordinator channel once the calls before it on file are done and its regions
+    // are locked.  The locks and the turn are given up once op has finished, whatever the future did.
+    private static <T> CompletableFuture<T> withLockedFile(File file, boolean write, long timeout, ChannelOp<T> op) {
+        Call<T> call = new Call<>(file, write, op);
+        ScheduledFuture<?> timer = TIMER.schedule(call::timeOut, timeout, TimeUnit.MILLISECONDS);
+        call.result.whenComplete((value, e) -> timer.cancel(false));
+        try {
+            call.path = file.getCanonicalPath();
+        } catch (IOException e) {
+            call.result.completeExceptionally(e);
+            return call.result;
+        }
+        CompletableFuture<?> previous = TAILS.put(call.path, call.done);
+        CompletableFuture<?> before = (previous == null) ? CompletableFuture.completedFuture(null) : previous;
+        before.whenComplete((value, e) -> start(call));
+        return call.result;
+    } // End withLockedFile()
+
+    // Take this JVM's turn at the file - retried later if a blocking caller in this JVM has it.
+    private static <T> void start(Call<T> call) {
+        if (call.result.isDone()) {   // cancelled or timed out while queued
+            call.finished();
+            return;
+        }
+        FileLockCoordinator.Handle handle;
+        try {
+            handle = FileLockCoordinator.tryLock(call.file);
+        } catch (IOException e) {
+            call.result.completeExceptionally(e);
+            call.finished();
+            return;
+        }
+        if (handle == null) {
+            TIMER.schedule(() -> start(call), RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        lockRegions(call, handle, null);
+    } // End start()
+
+    // Lock the header (shared for a moment by readers) then the records, retrying later while another
+    // process holds them, then hand the call to an I/O thread.
+    private static <T> void lockRegions(Call<T> call, FileLockCoordinator.Handle handle, FileLock header) {
+        FileChannel fc = handle.channel();   // shared by this JVM - dont close it
+        FileLock records = null;
+        try {
+            if (!call.result.isDone()) {
+                if (header == null) {
+                    header = fc.tryLock(HighScoreFileRegions.HEADER_POSITION, HighScoreFileRegions.HEADER_SIZE, !call.write);
+                }
+                if (header != null) records = fc.tryLock(0, HighScoreFileRegions.RECORDS_END, !call.write);
+                if (!call.write) {   // readers hold the header only to get past any writer
+                    releaseQuietly(header);
+                    header = null;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            call.result.completeExceptionally(e);
+        }
+        if (call.result.isDone()) {   // failed, cancelled or timed out while waiting
+            releaseQuietly(records);
+            releaseQuietly(header);
+            handle.close();
+            call.finished();
+            return;
+        }
+        if (records == null) {
+            FileLock heldHeader = header;
+            TIMER.schedule(() -> lockRegions(call, handle, heldHeader), RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        FileLock heldHeader = header;
+        FileLock heldRecords = records;
+        IO.execute(() -> run(call, handle, heldHeader, heldRecords));
+    } // End lockRegions()
+
+    // Run the call's op with its locks held, then release them and give up the turn.
+    private static <T> void run(Call<T> call, FileLockCoordinator.Handle handle, FileLock header, FileLock records) {
+        T value = null;
+        Exception failure = null;
+        try {
+            value = call.op.apply(handle.channel(), call);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            releaseQuietly(records);
+            releaseQuietly(header);
+            handle.close();
+        }
+        if (failure != null) {
+            call.result.completeExceptionally(failure);
+        } else {
+            call.result.complete(value);
+        }
+        call.finished();
+    } // End run()
+
+    // Write bytes from the start of fc, cut it to their length, and bump the file's sequence number -
+    // unless the call was cancelled or timed out first.
+    private static void write(FileChannel fc, byte[] bytes, Call<?> call) throws IOException {
+        if (!call.beginWrite()) throw new CancellationException("Stopped before writing: " + call.file);
+        HighScoreFile.writeBytes(fc, bytes, 0);
+        try {
+            HighScoreFileStamp.bumpSequence(call.file);   // readers caching the file re-read it
+        } catch (IOException e) {
+            // the scores are written - cached copies are still re-read once the file's size or time changes
+        }
+    } // End write()
+
+    private static void releaseQuietly(FileLock fl) {
+        if (fl == null) return;
+        try {
+            fl.release();
+        } catch (IOException e) {
+            // the turn is given up anyway - nothing more to do
+        }
+    } // End releaseQuietly()
+
+
+    // ------------ ChannelOp interface - the work of a call, done with its regions locked --------------
+    private interface ChannelOp<T> {
+        T apply(FileChannel fc, Call<T> call) throws IOException;
+    } // end interface ChannelOp
+
+    // ------------ Call class - one call, which a timeout or cancel can stop only before it writes ----
+    private static class Call<T> {
+        final File file;
+        final boolean write;
+        final ChannelOp<T> op;
+        // the caller's future - which cant be cancelled once writing has begun
+        final CompletableFuture<T> result = new CompletableFuture<T>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                synchronized (Call.this) {
+                    return !writing && super.cancel(mayInterruptIfRunning);
+                }
+            }
+        };
+        final CompletableFuture<Void> done = new CompletableFuture<>();   // this call's place in the file's queue
+        String path;
+        private boolean writing = false;   // guarded by this
+
+        Call(File file, boolean write, ChannelOp<T> op) {
+            this.file = file;
+            this.write = write;
+            this.op = op;
+        }
+
+        // true if the call may write - from then on a timeout no longer stops it
+        synchronized boolean beginWrite() {
+            if (result.isDone()) return false;
+            writing = true;
+            return true;
+        }
+
+        synchronized void timeOut() {
+            if (!writing) result.completeExceptionally(new TimeoutException("High score file busy: " + file));
+        }
+
+        // the call has let go of the file - the next call on it can start
+        void finished() {
+            done.complete(null);
+            if (path != null) TAILS.remove(path, done);   // unless a later call queued behind this one
+        }
+    } // end class Call
+
+} // end class HighScoreFileAsync
@@ -0,0 +1,118 @@
+/* High Score File Regions class - byte range locks for the high score text file.  All methods static
+ - started 10.18.26
+ Rather than locking the whole file, processes lock only the part they use:
+   header region  - a one byte range past any record, standing in for the file's metadata (record
+                    count, version).  Writers hold it exclusive for the whole write, so writers
+                    take turns.  Readers hold it shared just while they lock their records.
+   record regions - byte ranges of records.  Readers lock the records they read shared, and a
+                    writer locks exclusive only from the first byte it changes to the end, so
+                    readers of the records above it go on in parallel.
+ The file is sorted, so a new score moves every record below it and every writer's region runs to
+ the end - writers overlap each other (and the cutoff) whatever the header lock.  It is readers
+ that gain: they share with each other, and only wait for a writer changing what they read.
+ Writers come first: once a writer has the header, new readers wait at the header (see
+ lockRecordsToRead) while the readers already in finish, so a steady stream of overlapping shared
+ record locks can't starve it.  Every exclusive record lock is taken with the header held.
+ Records are fixed width (getRecordLineLength() plus a line separator), so record i starts at
+ i * getRecordLength().
+*/
+
+package games;  // most games contain high scores
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import util.LockStrategy;
+import util.MyTryLock;
+
+// -------------------------------------------
+public class HighScoreFileRegions {
+
+    static final long HEADER_POSITION = Long.MAX_VALUE - 1;   // locks may lie past the end of a file
+    static final long HEADER_SIZE = 1;
+    static final long RECORDS_END = HEADER_POSITION;          // record regions end before header
+
+    // instance variables - None, this is a static only class
+    // ----------------------------------------------------------------------------------------------
+
+    // bytes in each record, including its line separator
+    public static int getRecordLength() {
+        return HighScoreFile.getRecordLineLength() + System.lineSeparator().length();
+    }
+
+    // byte position of record index
+    public static long recordPosition(int index) {
+        return (long) index * getRecordLength();
+    }
+
+    // number of (possibly partial) records in the file
+    public static int getRecordCount(FileChannel fc) throws IOException {
+        return (int) ((fc.size() + getRecordLength() - 1) / getRecordLength());
+    }
+
+    // Lock the header region, waiting up to timeout millisecs, without asking the user.
+    public static FileLock lockHeader(FileChannel fc, boolean shared, long timeout)
+                                      throws InterruptedException, IOException {
+        return lockHeader(fc, MyTryLock.getDefaultStrategy(), shared, timeout);
+    } // End lockHeader()
+
+    // Lock the header region waiting with strategy - such as a BlockingLockStrategy on a channel the caller owns.
+    public static FileLock lockHeader(FileChannel fc, LockStrategy strategy, boolean shared, long timeout)
+                                      throws InterruptedException, IOException {
+        return MyTryLock.myTryLock(fc, strategy, HEADER_POSITION, HEADER_SIZE, shared, timeout);
+    } // End lockHeader()
+
+    // Lock the header region, asking the user if they wish to keep waiting if queryUser is true.
+    public static FileLock lockHeader(FileChannel fc, boolean shared, int timeout, boolean queryUser, String msg)
+                                      throws InterruptedException, IOException {
+        return MyTryLock.myTryLock(fc, HEADER_POSITION, HEADER_SIZE, shared, timeout, queryUser, msg, false);
+    } // End lockHeader()
+
+    // Lock size bytes of records starting at byte position.
+    public static FileLock lockRecords(FileChannel fc, long position, long size, boolean shared, long timeout)
+                                       throws InterruptedException, IOException {
+        return lockRecords(fc, MyTryLock.getDefaultStrategy(), position, size, shared, timeout);
+    } // End lockRecords()
+
+    // Lock size bytes of records starting at byte position, waiting with strategy.
+    public static FileLock lockRecords(FileChannel fc, LockStrategy strategy, long position, long size,
+                                       boolean shared, long timeout) throws InterruptedException, IOException {
+        if (position < 0 || size < 0 || position + size > RECORDS_END) {
+            throw new IllegalArgumentException("Bad record region " + position + ", " + size);
+        }
+        return MyTryLock.myTryLock(fc, strategy, position, size, shared, timeout);
+    } // End lockRecords()
+
+    // Lock count records starting at record first.
+    public static FileLock lockRecords(FileChannel fc, int first, int count, boolean shared, long timeout)
+                                       throws InterruptedException, IOException {
+        return lockRecords(fc, recordPosition(first), recordPosition(count), shared, timeout);
+    } // End lockRecords()
+
+    // Lock the records from byte position to the end shared, to read them - taking the header shared
+    // for a moment first, so a writer holding or taking the header is never overtaken by new readers.
+    public static FileLock lockRecordsToRead(FileChannel fc, long position, long timeout)
+                                             throws InterruptedException, IOException {
+        return lockRecordsToRead(fc, MyTryLock.getDefaultStrategy(), position, timeout);
+    } // End lockRecordsToRead()
+
+    public static FileLock lockRecordsToRead(FileChannel fc, LockStrategy strategy, long position, long timeout)
+                                             throws InterruptedException, IOException {
+        long deadline = System.currentTimeMillis() + timeout;
+        try (FileLock header = lockHeader(fc, strategy, true, timeout)) {
+            if (header == null) return null;
+            return lockRecordsFrom(fc, strategy, position, true, Math.max(0, deadline - System.currentTimeMillis()));
+        } // end try lock header
+    } // End lockRecordsToRead()
+
+    // Lock the records from byte position to the end, including any records added later.
+    public static FileLock lockRecordsFrom(FileChannel fc, long position, boolean shared, long timeout)
+                                           throws InterruptedException, IOException {
+        return lockRecordsFrom(fc, MyTryLock.getDefaultStrategy(), position, shared, timeout);
+    } // End lockRecordsFrom()
+
+    public static FileLock lockRecordsFrom(FileChannel fc, LockStrategy strategy, long position, boolean shared,
+                                           long timeout) throws InterruptedException, IOException {
+        return lockRecords(fc, strategy, position, RECORDS_END - position, shared, timeout);
+    } // End lockRecordsFrom()
+
+} // end class HighScoreFileRegions
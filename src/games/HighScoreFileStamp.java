@@ -0,0 +1,110 @@
+/* High Score File Stamp class - identity of a high score file's contents at some moment.
+ - started 10.18.26
+ A stamp holds the file's size and last modified time, the sequence number kept in the
+ <high score file>.seq sidecar, and the size of any journal.  If two stamps of a file are equal its
+ contents have not changed, so a parsed copy can be reused rather than reading the file again.
+ Size and time alone can miss a change (records are fixed width, and some file systems keep times
+ to the second), so writers bump the sequence number after each write, while still holding their
+ lock.  A file with no sidecar has sequence 0 - older writers are still caught by size and time.
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+
+// -------------------------------------------
+public class HighScoreFileStamp {
+
+    static final String SEQUENCE_SUFFIX = ".seq";
+
+    // instance variables
+    private final long size;
+    private final FileTime lastModified;   // full resolution of the file system, not just millisecs
+    private final long sequence;
+    private final long journalSize;        // -1 if no journal
+
+  // ----------- HighScoreFileStamp Constructors -------------------
+  // ---------------------------------------------------------------
+
+    private HighScoreFileStamp(long size, FileTime lastModified, long sequence, long journalSize) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.sequence = sequence;
+        this.journalSize = journalSize;
+    } // end HighScoreFileStamp constructor
+
+ // HighScoreFileStamp getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public long getSize() {
+        return size;
+    }
+
+    public FileTime getLastModified() {
+        return lastModified;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+  // ----------- HighScoreFileStamp methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Current stamp of file (and of journalFile, if not null).  Takes no locks - take the stamp
+    // before reading the file, so a write in between only makes the next stamp differ.
+    public static HighScoreFileStamp of(File file, File journalFile) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        long journalSize = (journalFile == null) ? -1 : journalFile.length();
+        return new HighScoreFileStamp(attrs.size(), attrs.lastModifiedTime(), readSequence(file), journalSize);
+    } // End of()
+
+    public static File sequenceFile(File file) {
+        return new File(file.getPath() + SEQUENCE_SUFFIX);
+    }
+
+    // sequence number of file, 0 if never bumped
+    public static long readSequence(File file) throws IOException {
+        File seqFile = sequenceFile(file);
+        if (seqFile.length() < 8) return 0;
+        try (RandomAccessFile raf = new RandomAccessFile(seqFile, "r")) {
+            return raf.readLong();
+        }
+    } // End readSequence()
+
+    // Add one to the sequence number of file - call after writing file, with its header lock held.
+    public static long bumpSequence(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(sequenceFile(file), "rw")) {
+            long sequence = (raf.length() < 8) ? 1 : raf.readLong() + 1;
+            raf.seek(0);
+            raf.writeLong(sequence);
+            return sequence;
+        }
+    } // End bumpSequence()
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HighScoreFileStamp)) return false;
+        HighScoreFileStamp other = (HighScoreFileStamp) o;
+        return size == other.size && sequence == other.sequence && journalSize == other.journalSize
+               && lastModified.equals(other.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, sequence, journalSize);
+    }
+
+    @Override
+    public String toString() {
+        return "HighScoreFileStamp: size " + size + " modified " + lastModified + " sequence " + sequence
+               + ((journalSize < 0) ? "" : " journal " + journalSize);
+    }
+
+} // end class HighScoreFileStamp
@@ -0,0 +1,141 @@
+/* High Score File Sync class - when saved high scores are forced to disk.
+ - started 10.18.26
+ A write reaching the file is only in the operating system's cache - a crash or power cut can still
+ lose it.  FileChannel.force puts it on disk, but costs milliseconds, so each board picks a Durability:
+     NONE   - never force (as before): fastest, a crash can lose scores already reported saved.
+     GROUP  - force after the file lock is let go, sharing one force among every save waiting on it.
+              While one force runs the next saves queue up, and a single force then covers them all.
+     RECORD - force every save before its file lock is let go: each save pays a whole force, alone.
+ A save is reported done only once a force started after its write has finished, so GROUP is as
+ durable as RECORD - saves just wait together.  Forcing a file puts every process's writes to it on
+ disk, so a force done for one process's save also covers the others'.
+ A group force takes a FileLockCoordinator turn and forces the shared channel - opening and closing
+ a channel of its own would drop every lock this JVM holds on the file.  So callers must have given
+ up their own turn at the file first.
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import util.FileLockCoordinator;
+
+// -------------------------------------------
+public class HighScoreFileSync {
+
+    public enum Durability { NONE, GROUP, RECORD }
+
+    static final long FORCE_TIMEOUT = 10000;   // millisecs to wait for this JVM's turn at the file to force it
+
+    private static final ConcurrentMap<String, HighScoreFileSync> FILES = new ConcurrentHashMap<>();
+
+    // instance variables
+    private final File file;
+    private long requested = 0;        // saves that asked for a force
+    private long forced = 0;           // saves covered by a finished force
+    private boolean forcing = false;   // a thread is forcing the file now
+    private long forces = 0;
+
+  // ----------- HighScoreFileSync Constructors -------------------
+  // ---------------------------------------------------------------
+
+    private HighScoreFileSync(File file) {
+        this.file = file;
+    } // end HighScoreFileSync constructor
+
+ // HighScoreFileSync getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    // the sync of file - one per canonical path, shared by every thread of this JVM
+    public static HighScoreFileSync of(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        HighScoreFileSync sync = FILES.get(path);
+        if (sync == null) {
+            HighScoreFileSync newSync = new HighScoreFileSync(new File(path));
+            sync = FILES.putIfAbsent(path, newSync);
+            if (sync == null) sync = newSync;
+        }
+        return sync;
+    }
+
+    // forces done, and saves they covered - saves per force shows how well saves are grouped
+    public synchronized long getForces() {
+        return forces;
+    }
+
+    public synchronized long getForcedSaves() {
+        return forced;
+    }
+
+  // ----------- HighScoreFileSync methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Return once everything written to file before this call is on disk (GROUP durability).
+    // Call with no file lock or coordinator turn held, so other saves can write while this one waits.
+    public static void forceGroup(File file) throws IOException {
+        of(file).awaitForce();
+    } // End forceGroup()
+
+    // Force fc's file while its writer still holds the lock (RECORD durability).
+    public static void forceRecord(FileChannel fc) throws IOException {
+        fc.force(false);   // contents only - the file's times dont matter
+    } // End forceRecord()
+
+    private void awaitForce() throws IOException {
+        long mine;
+        synchronized (this) {
+            mine = ++requested;   // this save has already written
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                long upTo;
+                synchronized (this) {
+                    // a force already running may have started before our write - wait for it to end
+                    while (forcing && forced < mine) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;   // the score is written - still see it onto disk
+                        }
+                    }
+                    if (forced >= mine) return;
+                    forcing = true;
+                    upTo = requested;      // every save asking so far has written - one force covers them
+                }
+                boolean done = false;
+                try {
+                    force();   // with no monitor held, so later saves queue for the next force
+                    done = true;
+                } finally {
+                    synchronized (this) {
+                        forcing = false;
+                        if (done) {
+                            forced = upTo;
+                            forces++;
+                        }
+                        notifyAll();   // if this force failed, a waiter tries again
+                    }
+                }
+            } // end while not yet forced
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    } // End awaitForce()
+
+    // Force the file through its coordinator channel, in a turn of our own - the writers' locks on the
+    // channel are only theirs during their turns.
+    private void force() throws IOException {
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, FORCE_TIMEOUT)) {
+            if (handle == null) throw new IOException("File busy too long to force to disk: " + file);
+            handle.channel().force(false);   // shared by this JVM - dont close it
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            throw new InterruptedIOException("Interrupted waiting to force " + file);
+        }
+    } // End force()
+
+} // end class HighScoreFileSync
@@ -0,0 +1,269 @@
+/* High Score Journal class - append only journal of new high scores, beside the sorted top-N file.
+ - started 10.18.26
+ Saving a score normally costs a lock, read, sort and rewrite of the high score file.  In journal
+ mode a score is just appended to <high score file>.journal as one fixed size record, under a lock
+ held only for that single write.  A background compactor periodically folds the journal into the
+ top-N file and truncates the journal, and readers merge the file with the journal not yet compacted.
+ Journal records use the HighScoreBinaryFile header and record layout, so record i starts at
+ HighScoreBinaryFile.recordPosition(i).  The header record count is not kept up to date - records
+ are counted from the journal size, so an append is a single write.  A partial record left by a
+ crash is ignored, and overwritten by the next append.
+ Locks are always taken journal first, then high score file, so compactor and readers cant deadlock.
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import util.FileLockCoordinator;
+import util.MyTryLock;
+
+// -------------------------------------------
+public class HighScoreJournal {
+
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final int RECORD_SIZE = HighScoreBinaryFile.RECORD_SIZE;
+    static final int HEADER_SIZE = HighScoreBinaryFile.HEADER_SIZE;
+    static final long COMPACT_LOCK_TIMEOUT = 1000;   // millisecs compactor waits for locks
+
+    // instance variables
+    private final File file;                                  // sorted top-N high score file
+    private final File journalFile;
+    private final UnaryOperator<List<HighScore>> topScores;   // sort and keep top scores of a list
+    private volatile HighScoreFileSync.Durability durability = HighScoreFileSync.Durability.NONE;
+    private ScheduledExecutorService compactor = null;
+    private long compactions = 0;
+    private long compactedRecords = 0;
+    private long compactFailures = 0;
+
+  // ----------- HighScoreJournal Constructors -------------------
+  // ---------------------------------------------------------------
+
+    public HighScoreJournal(File file, UnaryOperator<List<HighScore>> topScores) {
+        this.file = file;
+        this.journalFile = new File(file.getPath() + JOURNAL_SUFFIX);
+        this.topScores = topScores;
+    } // end HighScoreJournal constructor
+
+ // HighScoreJournal getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    // how appends (and compactions) are forced to disk - see HighScoreFileSync
+    public void setDurability(HighScoreFileSync.Durability durability) {
+        this.durability = durability;
+    }
+
+    public HighScoreFileSync.Durability getDurability() {
+        return durability;
+    }
+
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    public synchronized long getCompactedRecords() {
+        return compactedRecords;
+    }
+
+    public synchronized long getCompactFailures() {
+        return compactFailures;
+    }
+
+  // ----------- HighScoreJournal methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Append newHighs to the journal, waiting up to timeout millisecs for the journal lock.
+    // Returns false if the journal stayed locked.  Only the journal is locked, never the high score file.
+    // Returns once the records are on disk, unless durability is NONE.
+    public boolean append(List<HighScore> newHighs, long timeout) throws InterruptedException, IOException {
+        ByteBuffer records = ByteBuffer.allocate(HEADER_SIZE + newHighs.size() * RECORD_SIZE);
+        for (int i = 0; i < newHighs.size(); i++) {
+            HighScoreBinaryFile.putHighScore(records, i, newHighs.get(i));
+        }
+        records.position(HEADER_SIZE);   // header space only there so putHighScore positions match
+
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(journalFile, timeout);
+             FileLock lockJournal = (handle == null) ? null :
+                                    MyTryLock.myTryLock(handle.channel(), MyTryLock.getDefaultStrategy(), timeout)) {
+            if (lockJournal == null) return false;
+            FileChannel fc = handle.channel();   // shared by this JVM - dont close it
+            long position = HighScoreBinaryFile.recordPosition(getRecordCount(fc));
+            if (fc.size() < HEADER_SIZE) writeHeader(fc);
+            while (records.hasRemaining()) {
+                position += fc.write(records, position);
+            }
+            if (durability == HighScoreFileSync.Durability.RECORD) HighScoreFileSync.forceRecord(fc);
+        } // end try lock journal
+        if (durability == HighScoreFileSync.Durability.GROUP) HighScoreFileSync.forceGroup(journalFile);
+        return true;
+    } // End append()
+
+    // Scores in the journal, not yet compacted into the high score file.  Returns null if locked.
+    public List<HighScore> readJournal(long timeout) throws InterruptedException, IOException {
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(journalFile, timeout);
+             FileLock lockJournal = (handle == null) ? null : MyTryLock.myTryLock(handle.channel(),
+                                    MyTryLock.getDefaultStrategy(), 0L, Long.MAX_VALUE, true, timeout)) {
+            if (lockJournal == null) return null;
+            return readRecords(handle.channel());
+        } // end try lock journal
+    } // End readJournal()
+
+    // Top scores of the high score file merged with the journal, read as one consistent view.
+    // Returns null if either stays locked for timeout millisecs or cant be read.
+    public List<HighScore> readMerged(long timeout) {
+        List<HighScore> merged = null;
+        try (FileLockCoordinator.Handle journalHandle = FileLockCoordinator.lock(journalFile, timeout);
+             FileLock lockJournal = (journalHandle == null) ? null : MyTryLock.myTryLock(journalHandle.channel(),
+                                    MyTryLock.getDefaultStrategy(), 0L, Long.MAX_VALUE, true, timeout);
+             FileLockCoordinator.Handle handle = (lockJournal == null) ? null : FileLockCoordinator.lock(file, timeout);
+             FileLock lockRecords = (handle == null) ? null :
+                                    HighScoreFileRegions.lockRecordsToRead(handle.channel(), 0, timeout)) {
+            if (lockRecords == null) return null;
+            merged = HighScoreFile.readHighScoresFromFile(HighScoreFile.readBytes(handle.channel()));
+            merged.addAll(readRecords(journalHandle.channel()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            return null;
+        } catch (Exception e) {
+            System.out.println("HighScoreJournal: readMerged: Error reading " + e.getClass().getSimpleName());
+            return null;
+        } // end try with resources
+        return topScores.apply(merged);
+    } // End readMerged()
+
+    // Fold the journal into the high score file, then truncate the journal.  Both stay locked
+    // throughout, so no append is lost and no reader sees a score twice.
+    // Returns the number of journal records compacted, or -1 if a lock could not be had in timeout.
+    public int compact(long timeout) throws InterruptedException, IOException {
+        try (FileLockCoordinator.Handle journalHandle = FileLockCoordinator.lock(journalFile, timeout);
+             FileLock lockJournal = (journalHandle == null) ? null :
+                                    MyTryLock.myTryLock(journalHandle.channel(), MyTryLock.getDefaultStrategy(), timeout)) {
+            if (lockJournal == null) return -1;
+            FileChannel journalChan = journalHandle.channel();   // shared by this JVM - dont close it
+            List<HighScore> journalScores = readRecords(journalChan);
+            if (journalScores.isEmpty()) return 0;   // nothing to fold in - dont touch the high score file
+
+            try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, timeout);
+                 FileLock lockHeader = (handle == null) ? null : HighScoreFileRegions.lockHeader(handle.channel(), false, timeout);
+                 FileLock lockRecords = (lockHeader == null) ? null :
+                                        HighScoreFileRegions.lockRecordsFrom(handle.channel(), 0, false, timeout)) {
+                if (lockRecords == null) return -1;
+                FileChannel chan = handle.channel();   // shared by this JVM - dont close it
+                List<HighScore> fileScores = HighScoreFile.readHighScoresFromFile(HighScoreFile.readBytes(chan));
+                fileScores.addAll(journalScores);
+                HighScoreFile.writeBytes(chan, HighScoreFile.toBytes(topScores.apply(fileScores)), 0);
+                // the journal records must be on disk in the file before they leave the journal
+                if (durability != HighScoreFileSync.Durability.NONE) HighScoreFileSync.forceRecord(chan);
+                HighScoreFileStamp.bumpSequence(file);
+            } // end try lock high score file
+            journalChan.truncate(HEADER_SIZE);
+            if (durability != HighScoreFileSync.Durability.NONE) HighScoreFileSync.forceRecord(journalChan);
+            synchronized (this) {
+                compactions++;
+                compactedRecords += journalScores.size();
+            }
+            return journalScores.size();
+        } // end try lock journal
+    } // End compact()
+
+    // Compact every periodMillis on a background daemon thread, until stopCompactor.
+    public synchronized void startCompactor(long periodMillis) {
+        if (compactor != null) return;
+        compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "HighScoreJournal-compactor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        compactor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                compactQuietly();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    } // End startCompactor()
+
+    // Stop the background compactor, then fold in whatever it had not yet.
+    public void stopCompactor() throws InterruptedException {
+        ScheduledExecutorService oldCompactor;
+        synchronized (this) {
+            oldCompactor = compactor;
+            compactor = null;
+        }
+        if (oldCompactor != null) {
+            oldCompactor.shutdown();
+            oldCompactor.awaitTermination(COMPACT_LOCK_TIMEOUT * 4, TimeUnit.MILLISECONDS);
+        }
+        compactQuietly();
+    } // End stopCompactor()
+
+    // compact, counting (rather than throwing) any failure - the journal is kept for the next try
+    private void compactQuietly() {
+        int compacted;
+        try {
+            compacted = compact(COMPACT_LOCK_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            compacted = -1;
+        } catch (Exception e) {
+            System.out.println("HighScoreJournal: compaction failed - " + e.getClass().getSimpleName());
+            compacted = -1;
+        }
+        if (compacted < 0) {
+            synchronized (this) {
+                compactFailures++;
+            }
+        }
+    } // End compactQuietly()
+
+
+    // number of whole records in a journal - a partial record at the end is not counted
+    static int getRecordCount(FileChannel fc) throws IOException {
+        long size = fc.size();
+        return (size < HEADER_SIZE) ? 0 : (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    // all whole records of a locked journal
+    static List<HighScore> readRecords(FileChannel fc) throws IOException {
+        int count = getRecordCount(fc);
+        List<HighScore> scores = new ArrayList<>(count);
+        if (count == 0) return scores;
+        ByteBuffer buf = ByteBuffer.allocate(HighScoreBinaryFile.recordPosition(count));
+        long position = 0;
+        while (buf.hasRemaining()) {
+            int read = fc.read(buf, position);
+            if (read < 0) break;
+            position += read;
+        }
+        HighScoreBinaryFile.checkHeader(buf);
+        for (int i = 0; i < count; i++) {
+            scores.add(HighScoreBinaryFile.getHighScore(buf, i));
+        }
+        return scores;
+    } // End readRecords()
+
+    private static void writeHeader(FileChannel fc) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        HighScoreBinaryFile.putHeader(header, 0);   // count unused - journals are counted by size
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += fc.write(header, position);
+        }
+    } // End writeHeader()
+
+} // end class HighScoreJournal
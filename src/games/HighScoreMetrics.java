@@ -0,0 +1,289 @@
+/* High Score Metrics class - counters and latency histograms of one HighScoreProcessor, for JMX.
+ - started 10.18.26
+ The processor records each lock of its high score file, each read and write of it, every record
+ that would not parse, and every time scores had to be saved locally (so were never written to the
+ file).  Recording is cheap and allocates nothing: counters are LongAdders, and histograms are fixed
+ arrays of power of two buckets, so one histogram covers a microsec to many seconds.
+ register() shows the metrics as an MBean named
+     games:type=HighScoreProcessor,id=<processor id>,file=<quoted high score file>
+*/
+
+package games;  // most games contain high scores
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// -------------------------------------------
+public class HighScoreMetrics implements HighScoreMetricsMBean {
+
+    // instance variables
+    private final HighScoreProcessor processor;
+    private final LongAdder lockAttempts = new LongAdder();
+    private final LongAdder lockAcquisitions = new LongAdder();
+    private final LongAdder lockTimeouts = new LongAdder();
+    private final Histogram lockWaits = new Histogram();
+    private final Histogram reads = new Histogram();
+    private final LongAdder readBytes = new LongAdder();
+    private final Histogram writes = new Histogram();
+    private final LongAdder writeBytes = new LongAdder();
+    private final LongAdder parseFailures = new LongAdder();
+    private final LongAdder localFallbackSaves = new LongAdder();
+    private final LongAdder localFallbackScores = new LongAdder();
+    private volatile ObjectName name = null;
+
+  // ----------- HighScoreMetrics Constructors -------------------
+  // ---------------------------------------------------------------
+
+    HighScoreMetrics(HighScoreProcessor processor) {
+        this.processor = processor;
+    } // end HighScoreMetrics constructor
+
+  // ----------- HighScoreMetrics recording methods --------------------------
+  // ---------------------------------------------------------------
+
+    // Call just before trying to lock - returns the time to pass to lockResult.
+    long lockAttempt() {
+        lockAttempts.increment();
+        return System.nanoTime();
+    } // End lockAttempt()
+
+    // Record how a lock attempt begun at startNanos ended (null => timed out), and return lock.
+    <T> T lockResult(long startNanos, T lock) {
+        lockWaits.record(System.nanoTime() - startNanos);
+        if (lock == null) {
+            lockTimeouts.increment();
+        } else {
+            lockAcquisitions.increment();
+        }
+        return lock;
+    } // End lockResult()
+
+    void read(long startNanos, long bytes) {
+        reads.record(System.nanoTime() - startNanos);
+        readBytes.add(bytes);
+    } // End read()
+
+    void write(long startNanos, long bytes) {
+        writes.record(System.nanoTime() - startNanos);
+        writeBytes.add(bytes);
+    } // End write()
+
+    void parseFailure() {
+        parseFailures.increment();
+    }
+
+    void localFallback(int scores) {
+        localFallbackSaves.increment();
+        localFallbackScores.add(scores);
+    } // End localFallback()
+
+  // ----------- HighScoreMetrics JMX methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Register with the platform MBean server (once).  Returns the name, or null if it cant be.
+    public synchronized ObjectName register() {
+        if (name != null) return name;
+        try {
+            ObjectName newName = new ObjectName("games:type=HighScoreProcessor,id=" + processor.id
+                                                + ",file=" + ObjectName.quote(getFile()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+            name = newName;
+        } catch (JMException e) {
+            System.out.println("HighScoreMetrics: could not register MBean: " + e);
+        }
+        return name;
+    } // End register()
+
+    public synchronized void unregister() {
+        if (name == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone
+        }
+        name = null;
+    } // End unregister()
+
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    @Override
+    public String getFile() {
+        return String.valueOf(processor.file);
+    }
+
+    @Override
+    public long getLockAttempts() {
+        return lockAttempts.sum();
+    }
+
+    @Override
+    public long getLockAcquisitions() {
+        return lockAcquisitions.sum();
+    }
+
+    @Override
+    public long getLockTimeouts() {
+        return lockTimeouts.sum();
+    }
+
+    @Override
+    public double getLockWaitMillis() {
+        return lockWaits.totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getLockWaitP50Millis() {
+        return lockWaits.percentileMillis(50);
+    }
+
+    @Override
+    public double getLockWaitP99Millis() {
+        return lockWaits.percentileMillis(99);
+    }
+
+    @Override
+    public double getLockWaitMaxMillis() {
+        return lockWaits.maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public long[] getLockWaitHistogram() {
+        return lockWaits.counts();
+    }
+
+    @Override
+    public long getReads() {
+        return reads.total();
+    }
+
+    @Override
+    public long getReadBytes() {
+        return readBytes.sum();
+    }
+
+    @Override
+    public double getReadP50Millis() {
+        return reads.percentileMillis(50);
+    }
+
+    @Override
+    public double getReadP99Millis() {
+        return reads.percentileMillis(99);
+    }
+
+    @Override
+    public long[] getReadHistogram() {
+        return reads.counts();
+    }
+
+    @Override
+    public long getWrites() {
+        return writes.total();
+    }
+
+    @Override
+    public long getWriteBytes() {
+        return writeBytes.sum();
+    }
+
+    @Override
+    public double getWriteP50Millis() {
+        return writes.percentileMillis(50);
+    }
+
+    @Override
+    public double getWriteP99Millis() {
+        return writes.percentileMillis(99);
+    }
+
+    @Override
+    public long[] getWriteHistogram() {
+        return writes.counts();
+    }
+
+    @Override
+    public long getParseFailures() {
+        return parseFailures.sum();
+    }
+
+    @Override
+    public int getReadWriteFailures() {
+        return processor.readWriteFailures;
+    }
+
+    @Override
+    public long getLocalFallbackSaves() {
+        return localFallbackSaves.sum();
+    }
+
+    @Override
+    public long getLocalFallbackScores() {
+        return localFallbackScores.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder: new LongAdder[] {lockAttempts, lockAcquisitions, lockTimeouts, readBytes, writeBytes,
+                                               parseFailures, localFallbackSaves, localFallbackScores}) {
+            adder.reset();
+        }
+        for (Histogram histogram: new Histogram[] {lockWaits, reads, writes}) histogram.reset();
+    } // End reset()
+
+
+    // ------------ Histogram class - counts of times by power of two nanosecs -----------------
+    static class Histogram {
+        static final int BUCKETS = 64;
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(nanos | 1));
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long[] counts() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) counts[i] = buckets.get(i);
+            return counts;
+        }
+
+        long total() {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) total += buckets.get(i);
+            return total;
+        }
+
+        // upper edge of the bucket holding the percent'th time, in millisecs - at most twice the time
+        double percentileMillis(double percent) {
+            long[] counts = counts();
+            long total = 0;
+            for (long count: counts) total += count;
+            if (total == 0) return 0.0;
+            long rank = (long) Math.ceil(percent / 100 * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(rank, 1)) return Math.min(Math.pow(2, i + 1), maxNanos.get()) / 1e6;
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    } // end class Histogram
+
+} // end class HighScoreMetrics
@@ -0,0 +1,43 @@
+/* Interface HighScoreMetricsMBean - what a HighScoreProcessor shows over JMX.
+ - started 10.18.26
+ Counts are since the processor was created.  Times are in millisecs.  Histograms are counts per
+ power of two nanosecs: entry i counts times from 2^i up to 2^(i+1) nanosecs.
+*/
+
+package games;  // most games contain high scores
+
+public interface HighScoreMetricsMBean {
+
+    String getFile();
+
+    // locks of the high score file (MyTryLock calls)
+    long getLockAttempts();
+    long getLockAcquisitions();
+    long getLockTimeouts();
+    double getLockWaitMillis();         // total
+    double getLockWaitP50Millis();
+    double getLockWaitP99Millis();
+    double getLockWaitMaxMillis();
+    long[] getLockWaitHistogram();
+
+    // reads and writes of the high score file
+    long getReads();
+    long getReadBytes();
+    double getReadP50Millis();
+    double getReadP99Millis();
+    long[] getReadHistogram();
+    long getWrites();
+    long getWriteBytes();
+    double getWriteP50Millis();
+    double getWriteP99Millis();
+    long[] getWriteHistogram();
+    long getParseFailures();
+    int getReadWriteFailures();
+
+    // scores that could not be saved to the file, so were only kept in memory
+    long getLocalFallbackSaves();
+    long getLocalFallbackScores();
+
+    void reset();
+
+}  // end interface HighScoreMetricsMBean
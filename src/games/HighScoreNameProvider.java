@@ -0,0 +1,18 @@
+/* High Score Name Provider interface - how a processor gets the name for a new high score.
+ - started 10.18.26
+ Names can take a player a long time to type, so they are asked for asynchronously and no file
+ lock is ever held while waiting - see HighScoreProcessor.addNewScoreAsync.
+*/
+
+package games;
+import java.util.concurrent.CompletableFuture;
+
+// ---------------------------------------------------------------------------------------------
+public interface HighScoreNameProvider {
+
+    // abstract methods -------------------------
+    // Ask for the name of the player who scored newScore.  The future may complete with null (or be
+    // cancelled) if no name is given, and the score is then not saved.
+    CompletableFuture<String> requestName(int newScore, String prompt);
+
+}  // end interface HighScoreNameProvider
@@ -6,18 +6,11 @@ insert high score into list, write to file.
 
 package games;                   // most games generate and record high scores 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.File;
-import java.io.FileReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.RandomAccessFile; 
-import java.nio.channels.Channels;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
@@ -25,33 +18,81 @@ import java.nio.channels.OverlappingFileLockException;
 import java.time.LocalDate;  // new Java8 date-time classes
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.Collections;
 import java.util.List;       
 import java.util.ArrayList; 
 import javax.swing.JOptionPane;
-import static util.MyTryLock.myTryLock;
+import util.FileLockCoordinator;
+import util.MyTryLock;
    
 // -------------------------------------------
 public class HighScoreProcessor implements Runnable {
 
     private static AtomicLong count = new AtomicLong(); // total objects of this type created
-    static final int MAX_HIGH_SCORES = 5;
+    static final int MAX_HIGH_SCORES = 5;               // default high scores kept per board
     static final int MAX_READ_WRITE_FAILURES = 2;       // Maximum RW failures before giving up.
+    static final long READ_LOCK_TIMEOUT = 1000;         // millisecs to wait to read records being written
+    static final int DEFAULT_MAX_BATCH_SIZE = 64;       // most scores merged into file per lock
+    static final long DEFAULT_MAX_BATCH_WAIT = 20;      // millisecs to wait for a batch to fill
+    static final long JOURNAL_LOCK_TIMEOUT = 1000;      // millisecs to wait to append to the journal
+    static final String LOCK_SUFFIX = ".lock";          // sidecar file writers lock in snapshot mode
+    static final long RESERVE_LOCK_TIMEOUT = 10000;     // millisecs to wait to reserve or commit a place
+    static final long RANK_LOCK_TIMEOUT = 1000;         // millisecs to wait to append to or read the rank log
+    // save reason when a reserved score was beaten to the board by better scores saved meanwhile -
+    // the file is fine, the score just isnt on it (so it isnt kept locally either)
+    protected static final String MISSED_BOARD = " because better scores filled the board first";
+    // save reason when a score misses the board of all time but makes today's board
+    protected static final String WINDOWED_ONLY = " because it only makes today's board";
 
     // instance variables
    protected long id;
    protected BlockingQueue<Integer> queue;  // get msgs from child games
-   protected List<HighScore> highScores = new ArrayList<HighScore>();
+   // replaced whole, never changed in place, so any thread (such as an async save's) may set it
+   protected volatile List<HighScore> highScores = new ArrayList<HighScore>();
    protected File file;
+   protected int maxHighScores = MAX_HIGH_SCORES;   // high scores kept for this board
    protected int readWriteFailures = 0;  
    // if file can be read and written, use it, otherwise use a local copy.
    protected boolean canReadWriteFile = false;
+   protected boolean queryUser = true;      // ask user to keep waiting for a locked file when saving
    protected boolean appDone;  // if process interrupted, application is done.       
+   // batch mode - drain queue and merge many scores into the file with one lock/read/write.
+   protected boolean batchMode = false;
+   protected int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+   protected long maxBatchWait = DEFAULT_MAX_BATCH_WAIT;   // millisecs
+   // batch statistics - latencies in nanosecs, measured from a drained batch's merge starting to it
+   // being saved, so time scores waited in the queue (up to maxBatchWait) isnt included.
+   protected long batchCount = 0;
+   protected long batchScoreCount = 0;
+   protected long batchNanos = 0;
+   protected long lastBatchNanos = 0;
+   protected long maxBatchNanos = 0;
+   protected HighScoreJournal journal = null;     // non-null => journal mode
+   protected boolean snapshotMode = false;        // true => publish whole files, read with no locks
+   protected HighScoreNameProvider nameProvider = new DialogNameProvider();
+   protected HighScoreReservations reservations = null;   // places held while players type names
+   protected LeaderboardClient server = null;    // non-null => server mode, the server owns the file
+   // when saves are forced to disk - see HighScoreFileSync
+   protected HighScoreFileSync.Durability durability = HighScoreFileSync.Durability.NONE;
+   protected WindowedLeaderboards windowedBoards = null;   // non-null => daily, weekly boards kept too
+   protected HighScoreRankIndex rankIndex = null;   // non-null => every submitted score is ranked
+   // last board parsed by reReadHighScores(file), and the file stamp it was parsed at
+   protected List<HighScore> cachedScores = null;
+   protected HighScoreFileStamp cachedStamp = null;
+   protected long cacheHits = 0;
+   protected long cacheMisses = 0;
+   protected final HighScoreMetrics metrics = new HighScoreMetrics(this);   // shown over JMX
 
   // ----------- HighScoreProcessor Run Method ---------------------
   // ---------------------------------------------------------------
 
     public void run( ) {
+     if (batchMode) {
+         runBatches();
+         return;
+     }
      int gameScore = 0; 
      while (!appDone) {
         try { 
@@ -65,6 +106,39 @@ public class HighScoreProcessor implements Runnable {
      }
     } // end run
 
+    // Batch version of run - each batch is saved with a single lock-read-merge-write cycle.
+    public void runBatches( ) {
+     List<Integer> batch = new ArrayList<>(maxBatchSize);
+     while (!appDone) {
+        batch.clear();
+        try {
+            drainBatch(batch);
+        } catch (InterruptedException e) {
+            System.out.println("HighScoreProcessor interrupted while draining a batch of scores.");
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            appDone = true;                      // still save any scores already drained
+        } // end try drainBatch - catch interrupt
+        if (batch.isEmpty()) continue;
+        long start = System.nanoTime();
+        addNewScores(batch);
+        recordBatch(batch.size(), System.nanoTime() - start);
+     }
+    } // end runBatches
+
+    // Wait for one score, then gather more until maxBatchSize scores or maxBatchWait millisecs pass.
+    public void drainBatch(List<Integer> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long deadline = System.nanoTime() + maxBatchWait * 1000000L;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) continue;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            Integer gameScore = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (gameScore == null) break;   // timed out
+            batch.add(gameScore);
+        } // end while batch not full
+    } // End drainBatch()
+
   // ----------- HighScoreProcessor Constructors -------------------
   // ---------------------------------------------------------------
 
@@ -79,6 +153,7 @@ public class HighScoreProcessor implements Runnable {
        this.id = count.incrementAndGet();
        // System.out.println("Starting HighScoreProcessor constructor");
        this.queue = queue; 
+       this.maxHighScores = classReference.getMaxHighScores();
        this.file = new File(HighScoreFile.getClassPath(classReference), 
                             classReference.getHighScoreFileName());
        // get HighScores from file, or default if file doesnt exist or is locked or inaccessible
@@ -86,11 +161,14 @@ public class HighScoreProcessor implements Runnable {
        // write these to a file . . . in case they are defaults ... need file to test 
        // can read and write file . . .
        try {
-           if (!file.exists()) HighScoreFile.writeHighScoresToFile(highScores, file);   
+           if (!file.exists()) writeFileBytes(file, highScores, 1000);
+       } catch (InterruptedException e) {
+           Thread.currentThread().interrupt();  // allow interrupt to occur.
        } catch (Exception e) { 
            // if we cant write to highScore file . . . just do nothing.
        }
        testReadWriteFile(file);
+       metrics.register();
     } // end HighScoreProcessor constructor
 
 
@@ -105,10 +183,198 @@ public class HighScoreProcessor implements Runnable {
         return highScores;  
     }
 
+    public int getMaxHighScores() {
+        return maxHighScores;
+    }
+
+    // Change how many high scores are kept - the next file update trims the file to match.
+    public void setMaxHighScores(int maxHighScores) {
+        if (maxHighScores < 1) throw new IllegalArgumentException("Must keep at least 1 high score: " + maxHighScores);
+        this.maxHighScores = maxHighScores;
+        highScores = topHighScores(highScores);
+        clearCache();   // the cached board was trimmed to the old size
+    }
+
+    // batch mode must be set before the processor thread is started.
+    public void setBatchMode(boolean batchMode, int maxBatchSize, long maxBatchWait) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1: " + maxBatchSize);
+        if (maxBatchWait < 0) throw new IllegalArgumentException("Batch wait can't be negative: " + maxBatchWait);
+        this.batchMode = batchMode;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchWait = maxBatchWait;
+    }
+
+    public boolean isBatchMode() {
+        return batchMode;
+    }
+
+    // In journal mode new high scores are appended to a journal and compacted into the high score
+    // file every compactMillis by a background thread.  Turning it off compacts what is left.
+    public void setJournalMode(boolean journalMode, long compactMillis) throws InterruptedException {
+        if (journalMode && snapshotMode) throw new IllegalStateException("Journal mode can't be used with snapshot mode.");
+        if (journalMode && server != null) throw new IllegalStateException("Journal mode can't be used with server mode.");
+        if (journalMode && journal == null) {
+            if (compactMillis < 1) throw new IllegalArgumentException("Compaction period must be positive: " + compactMillis);
+            journal = new HighScoreJournal(file, this::topHighScores);
+            journal.setDurability(durability);
+            journal.startCompactor(compactMillis);
+        } else if (!journalMode && journal != null) {
+            journal.stopCompactor();
+            journal = null;
+        }
+        clearCache();   // reads merge the journal, or no longer do
+    }
+
+    // where names for new high scores come from - a dialog unless set
+    public void setNameProvider(HighScoreNameProvider nameProvider) {
+        if (nameProvider == null) throw new NullPointerException("Name provider cant be null.");
+        this.nameProvider = nameProvider;
+    }
+
+    // false => never ask the user to keep waiting, for processors with no one at the screen.
+    public void setQueryUser(boolean queryUser) {
+        this.queryUser = queryUser;
+    }
+
+    // In snapshot mode the file is replaced whole by an atomic rename rather than rewritten in place,
+    // so reads take no lock at all and only writers wait (on the <file>.lock sidecar).
+    // Every process sharing the file must use the same mode, and journal mode cant be used with it.
+    public void setSnapshotMode(boolean snapshotMode) {
+        if (snapshotMode && journal != null) throw new IllegalStateException("Snapshot mode can't be used with journal mode.");
+        if (snapshotMode && server != null) throw new IllegalStateException("Snapshot mode can't be used with server mode.");
+        this.snapshotMode = snapshotMode;
+    }
+
+    // In server mode scores are sent to a LeaderboardServer (the board named after the high score file)
+    // and the board is fetched from it - this process never opens the file.  null => back to the file.
+    public void setServerMode(LeaderboardClient server) {
+        if (server != null && (journal != null || snapshotMode)) {
+            throw new IllegalStateException("Server mode can't be used with journal or snapshot mode.");
+        }
+        this.server = server;
+        if (server != null) canReadWriteFile = true;   // until the server can't be reached
+        clearCache();   // the board comes from the server, or the file again
+    }
+
+    // How saves to the file (or journal) are forced to disk: NONE, GROUP (saves share a force made
+    // after the lock is let go) or RECORD (a force per save, made under the lock).  Every process
+    // saving to the file should use the same durability.  Snapshot mode always forces (see
+    // HighScoreFile.publishHighScores), and in server mode the server saves.
+    public void setDurability(HighScoreFileSync.Durability durability) {
+        if (durability == null) throw new NullPointerException("Durability cant be null.");
+        this.durability = durability;
+        if (journal != null) journal.setDurability(durability);
+    }
+
+    public HighScoreFileSync.Durability getDurability() {
+        return durability;
+    }
+
+    // Keep daily, weekly and monthly boards of boardSize scores as well as the all-time board (see
+    // WindowedLeaderboards), started from the all-time scores of the last month.  Scores that only
+    // make today's board are named too, and kept on the windowed boards - not in the file.
+    // The windowed boards are this process's own.  boardSize 0 => stop keeping them.
+    public void setWindowedBoards(int boardSize) {
+        if (boardSize < 0) throw new IllegalArgumentException("Board size can't be negative: " + boardSize);
+        if (boardSize == 0) {
+            windowedBoards = null;
+            return;
+        }
+        WindowedLeaderboards boards = new WindowedLeaderboards(boardSize);
+        boards.addAll(highScores);
+        windowedBoards = boards;
+    }
+
+    public WindowedLeaderboards getWindowedBoards() {
+        return windowedBoards;
+    }
+
+    // Rank every submitted score, not just high scores (see HighScoreRankIndex), so rankOf can say
+    // what place any score takes.  Scores are logged beside the file, shared by every process using
+    // it, and the log is read here - false => stop ranking them.
+    public void setRankIndex(boolean rankScores) throws InterruptedException, IOException {
+        if (!rankScores) {
+            rankIndex = null;
+            return;
+        }
+        HighScoreRankIndex index = new HighScoreRankIndex(file);
+        if (!index.load(RANK_LOCK_TIMEOUT)) throw new IOException("Rank log locked: " + index.getRanksFile());
+        rankIndex = index;
+    }
+
+    public HighScoreRankIndex getRankIndex() {
+        return rankIndex;
+    }
+
+    public boolean isServerMode() {
+        return server != null;
+    }
+
+    public boolean isSnapshotMode() {
+        return snapshotMode;
+    }
+
+    public boolean isJournalMode() {
+        return journal != null;
+    }
+
+    public HighScoreJournal getJournal() {
+        return journal;
+    }
+
+    // lock, I/O and fallback counts - the constructor taking a HighScoreClassInfo registers them as an
+    // MBean, which the platform MBean server holds on to until close() is called
+    public HighScoreMetrics getMetrics() {
+        return metrics;
+    }
+
+    // reReadHighScores(file) calls answered from the cache, and those that read the file
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized long getBatchScoreCount() {
+        return batchScoreCount;
+    }
+
+    // average and worst latency of a batch in millisecs
+    public synchronized double getAverageBatchMillis() {
+        return (batchCount == 0) ? 0.0 : batchNanos / 1e6 / batchCount;
+    }
+
+    public synchronized double getMaxBatchMillis() {
+        return maxBatchNanos / 1e6;
+    }
+
+    // scores saved per second of time spent saving batches
+    public synchronized double getBatchScoresPerSecond() {
+        return (batchNanos == 0) ? 0.0 : batchScoreCount * 1e9 / batchNanos;
+    }
+
 
   // ----------- HighScoreProcessor non-get-set methods ---------------------------------
   // ---------------------------------------------------------------
 
+    // Let go of what would otherwise keep this processor alive once its owner is done with it: its
+    // MBean (held by the platform MBean server) and any journal compactor thread, which compacts
+    // what is left first.  Owners (such as LeaderboardService) call it when they drop the processor.
+    public void close()  {
+        metrics.unregister();
+        try {
+            setJournalMode(false, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+        }
+    } // End close()
+
     // Try to read and write to the file if its not locked.  
     // Results stored in canReadWriteFile and readWriteFailures. Msgs possibly displayed.
     public void testReadWriteFile(File file, int timeout, boolean queryUser, String lockMsg)  {
@@ -117,25 +383,22 @@ public class HighScoreProcessor implements Runnable {
         StringBuilder msg = new StringBuilder("");
         String newLine = System.lineSeparator();
 
-        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
-             FileChannel chanRaf = raf.getChannel();
-             InputStream is    = Channels.newInputStream(chanRaf);
-             BufferedReader br = new BufferedReader(new InputStreamReader(is));
-             OutputStream os   = Channels.newOutputStream(chanRaf);
-             PrintWriter pw    = new PrintWriter(new BufferedWriter(new OutputStreamWriter(os)));
-                FileLock lockRaf  = myTryLock(chanRaf, timeout, queryUser, lockMsg); 
+        // threads of this JVM take turns at the file first, then lock it against other processes.
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, timeout);
+             // writers lock the header region, then the records they change (here all of them)
+             // lockAttempt() is evaluated before the lock call, so its wait is timed
+             FileLock lockRaf  = (handle == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                 HighScoreFileRegions.lockHeader(handle.channel(), false, timeout, queryUser, lockMsg));
+             FileLock lockRecords = (lockRaf == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                    HighScoreFileRegions.lockRecordsFrom(handle.channel(), 0, false, timeout));
         		)   {
-             // FileLock must be created after PrintWriter, BufferedReader created or else ClosedChannelException
-             // ClosedChannelException thrown even though last line of try block executes 
-             // hence, this exception must be thrown while try-with-resources are auto-closing.
-             // Cant find this in a book anywhere.                    
              // if queryUser false => dont query user to continue waiting.
-            if (lockRaf == null) {
+            if (lockRaf == null || lockRecords == null) {
                 return;    // dont update canReadWriteFile or readWriteFailures
             }
-            highScoresFromFile = HighScoreFile.readHighScoresFromFile(br);
-            raf.seek(0);     // return to beginning before writing.
-            HighScoreFile.writeHighScoresToFile(highScoresFromFile, pw);
+            FileChannel chanRaf = handle.channel();   // shared by this JVM - dont close it
+            highScoresFromFile = HighScoreFile.readHighScoresFromFile(HighScoreFile.readBytes(chanRaf));
+            HighScoreFile.writeBytes(chanRaf, HighScoreFile.toBytes(highScoresFromFile), 0);
             result = true;   // can still have exception thrown by auto-close
             } catch (FileNotFoundException e) {
                     msg.append("the file is not found. File name: " + file);
@@ -185,18 +448,19 @@ public class HighScoreProcessor implements Runnable {
         List<HighScore> highScoresFromFile = null;
 
         try {
-            highScoresFromFile = HighScoreFile.readHighScoresFromFile(file);
+            ByteBuffer fileBytes = readFileBytes(file, true);
+            if (fileBytes == null) return false;
+            highScoresFromFile = HighScoreFile.readHighScoresFromFile(fileBytes);
         } catch (Exception e) { 
             // System.out.println("HighScoreProcessor: canReadAndWriteFile: Cant read.");
             return false;
         }
         try {
-            HighScoreFile.writeHighScoresToFile(highScoresFromFile, file);
+            return writeFileBytes(file, highScoresFromFile, READ_LOCK_TIMEOUT);
         } catch (Exception e) { 
              // System.out.println("HighScoreProcessor: canReadAndWriteFile: Cant write.");
              return false;
         }  
-        return true;         
     } // End canReadAndWriteFile()
 
 
@@ -214,104 +478,519 @@ public class HighScoreProcessor implements Runnable {
 
 
 
-    // Add newScore if it is a high score - possible for another player to record high score after this 
-    // score has been tenatively verified as a high score.  Since it takes a "long" time for user to 
-    // type their name in, this must be permitted.
-    // Depends on values in high score file (or high score array).
-    // Routine reads highscores in file, checks if newscore is a highscore, and gets user name.
-    // Routine then locks file, reads, updates, writes, unlocks. Needed in case another process also 
-    // is trying to write to the file.
+    // Add newScore if it is a high score.  Saved in two phases (see HighScoreReservations) so no file
+    // lock is held while the player types their name: a place on the board is reserved under a short
+    // lock, the name is asked for with no lock held, then the score is committed under a short lock.
+    // Falls back to saving the score locally if the file cant be used.
     public void addNewScore(int newScore)  {
         System.out.println(" HighScoreProcessor - Adding New Score of " + newScore);
-        // reason must be set to non-null for any failure, or routine wont save 
-        // newScore to local file.  
-        String reason = "";          // exception reason
         String displayTitle = null;  // Title of window for when displaying high scores
+        CompletableFuture<String> added = addNewScoreAsync(newScore);
+        if (rankIndex != null) {
+            System.out.println(" HighScoreProcessor - Score of " + newScore + " places " + rankOf(newScore)
+                               + " of " + rankIndex.getTotal());
+        }
+        String reason = added.join();   // no locks held while waiting
+        if (reason == null) return;  // not a high score - no need to update high scores
+        WindowedLeaderboards windows = windowedBoards;
+        if (reason.equals(WINDOWED_ONLY) && windows != null) {   // the name was asked for today's board
+            displayHighScores(windows.getDaily(), "Today's High Scores");
+            return;
+        }
+        if (reason.isEmpty()) {
+            displayTitle = "High Scores of All Time";
+        } else if (reason.equals(MISSED_BOARD)) {
+            System.out.println(" HighScoreProcessor - Score of " + newScore + " not saved" + reason);
+            displayTitle = "High Scores of All Time";
+        } else { // Couldnt read-write to file => scores saved locally
+            displayTitle = "High Scores";
+        } // end if reason empty or not
+        displayHighScores(highScores, displayTitle);
+    
+    } // end addNewScore()
+
+
+    // Reserve, name and commit newScore without blocking - the name comes from nameProvider.
+    // Completes with null if newScore isnt a high score (or no name was given), "" if it was saved to
+    // the file, MISSED_BOARD if better scores took its place first, WINDOWED_ONLY if it only made the
+    // windowed boards, or otherwise the reason it was only saved locally.
+    public CompletableFuture<String> addNewScoreAsync(int newScore)  {
         String lockMsg = "Continue waiting to permanently save your high score to a file?";
         lockMsg += " (Otherwise it will be saved only during this application.)";
-        List<HighScore> fileScores = null;
-        List<HighScore> oldScores = null;
+        String reason = "";          // why the score cant go to the file
+        HighScoreReservations.Reservation reservation = null;
+        String prompt = "Please input your name.";
+        WindowedLeaderboards windows = windowedBoards;
 
+        recordForRanks(Collections.singletonList(newScore));
         if (unsureIfCanReadWriteFile()) {
             // update canRWFile or readWritefailures if file not locked.
             // false => dont ask user to continue waiting if file is locked. 1000 milleSecs
             testReadWriteFile(file, 1000, false, ""); 
         }
+        if (!canReadWriteFile) {
+            reason = " because the file can't be read and written";
+            if (highScores.size() >= maxHighScores && newScore <= highScores.get(highScores.size()-1).getScore()) {
+                return nameForWindowedBoards(newScore, prompt);   // not even a local high score
+            }
+        } else {
+            try {
+                reservation = reserveHighScore(newScore);
+                if (reservation == null) return nameForWindowedBoards(newScore, prompt);   // board is full
+            } catch (IOException e) {
+                reason = " because the file is locked";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();  // allow interrupt to occur.
+                reason = " because saving was interrupted";
+            } // end try-catch reserve
+        } // end if canReadWriteFile
+
+        final HighScoreReservations.Reservation held = reservation;
+        final String localReason = reason;
+        final String msg = lockMsg;
+        return nameProvider.requestName(newScore, prompt).handle((name, e) -> {
+            if (e != null || name == null) {   // no name - give up the place
+                if (held != null) cancelHighScore(held);
+                return null;
+            }
+            HighScore named = new HighScore(name, newScore);
+            String why = (held == null) ? localReason : commitHighScore(held, name, msg);
+            if (savedOnlyLocally(why)) saveHighScoresLocally(Collections.singletonList(named));
+            if (windows != null) windows.add(named);
+            return why;
+        });
+    } // end addNewScoreAsync()
+
+
+    // newScore missed the all-time board - if it makes today's board, ask for a name and keep it on
+    // the windowed boards only.  Completes with WINDOWED_ONLY once named, else null.
+    protected CompletableFuture<String> nameForWindowedBoards(int newScore, String prompt)  {
+        WindowedLeaderboards windows = windowedBoards;
+        if (windows == null || !windows.qualifies(newScore)) return CompletableFuture.completedFuture(null);
+        return nameProvider.requestName(newScore, prompt).handle((name, e) -> {
+            if (e != null || name == null) return null;
+            windows.add(new HighScore(name, newScore));
+            return WINDOWED_ONLY;
+        });
+    } // end nameForWindowedBoards()
+
+
+    // Reserve a place on the board for newScore, counting places already reserved by other players.
+    // Returns null if newScore wont make the board, or throws IOException if the file is locked.
+    public HighScoreReservations.Reservation reserveHighScore(int newScore) throws InterruptedException, IOException {
+        if (server != null) {   // the server keeps no reservations - just check the cutoff
+            List<HighScore> board = server.top(file.getName(), maxHighScores);
+            if (board.size() >= maxHighScores && newScore <= board.get(board.size()-1).getScore()) return null;
+            return HighScoreReservations.Reservation.newReservation(newScore, HighScoreReservations.DEFAULT_HOLD_MILLIS);
+        }
+        return getReservations().update(RESERVE_LOCK_TIMEOUT, live -> {
+            // With k live reservations only file records maxHighScores-1-k on can be the cutoff - the
+            // ones above stay on the board whatever - so only those few records are read.
+            int first = Math.max(0, maxHighScores - 1 - live.size());
+            List<HighScore> records = readCutoffRecords(first);
+            if (records == null) {   // not fixed width records - use the whole board
+                first = 0;
+                records = reReadHighScores(file);
+            }
+            Leaderboard near = new Leaderboard(maxHighScores - first, records);
+            near.addAll(HighScoreReservations.asHighScores(live));
+            if (!near.qualifies(newScore)) return null;
+            HighScoreReservations.Reservation reservation = 
+                HighScoreReservations.Reservation.newReservation(newScore, HighScoreReservations.DEFAULT_HOLD_MILLIS);
+            live.add(reservation);
+            return reservation;
+        });
+    } // end reserveHighScore()
+
+    // Save the named score of reservation, then drop the reservation.  No reservations lock is held
+    // while saving, and the save never asks the user to keep waiting - it just times out - so no lock
+    // is ever held for as long as a person takes.  The reservation keeps the place until the score is
+    // in the file (for a moment both count, which can only turn a score away, never overfill the board).
+    // Returns "" if saved to the file, otherwise the reason it wasnt.
+    public String commitHighScore(HighScoreReservations.Reservation reservation, String name, String lockMsg)  {
+        List<HighScore> newHighs = Collections.singletonList(new HighScore(name, reservation.getScore()));
+        String reason = saveHighScoresToFile(newHighs, lockMsg, false);
+        cancelHighScore(reservation);   // saved or not, the place is no longer needed
+        return reason;
+    } // end commitHighScore()
+
+    // Give up a reservation whose name never came.  If the reservations stay locked it just lapses.
+    public void cancelHighScore(HighScoreReservations.Reservation reservation)  {
+        if (server != null) return;   // nothing was held
+        try {
+            getReservations().remove(reservation, RESERVE_LOCK_TIMEOUT);
+        } catch (IOException e) {
+            // lapses on its own
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+        } // end try-catch remove
+    } // end cancelHighScore()
+
+    // Place score takes among every score submitted (by any process sharing the file) - 1 if none
+    // beat it, equal scores sharing a place.  O(log n) once scores other processes logged are counted.
+    public long rankOf(int score)  {
+        HighScoreRankIndex index = rankIndex;
+        if (index == null) throw new IllegalStateException("Scores aren't ranked - call setRankIndex(true) first.");
+        try {
+            index.refresh(RANK_LOCK_TIMEOUT);   // if locked, rank among the scores counted so far
+        } catch (IOException e) {
+            // rank among the scores counted so far
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+        } // end try-catch refresh
+        return index.rankOf(score);
+    } // end rankOf()
+
+    // Log submitted scores to the rank index, if kept.  A score that cant be logged just goes unranked -
+    // it still goes on the board.
+    protected void recordForRanks(List<Integer> scores)  {
+        HighScoreRankIndex index = rankIndex;
+        if (index == null || scores.isEmpty()) return;
+        try {
+            index.record(scores, RANK_LOCK_TIMEOUT);
+        } catch (IOException e) {
+            // unranked
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+        } // end try-catch record
+    } // end recordForRanks()
+
+    protected HighScoreReservations getReservations()  {
+        if (reservations == null) reservations = new HighScoreReservations(file);
+        return reservations;
+    } // end getReservations()
+
+
+    // Batch version of addNewScore. Names are input for every score that would make the high score
+    // list, then the whole batch is merged into the file under one lock with a single read and write.
+    public void addNewScores(List<Integer> newScores)  {
+        System.out.println(" HighScoreProcessor - Adding batch of " + newScores.size() + " scores");
+        String reason = "";          // exception reason
+        String displayTitle = null;  // Title of window for when displaying high scores
+        String lockMsg = "Continue waiting to permanently save your high scores to a file?";
+        lockMsg += " (Otherwise they will be saved only during this application.)";
+        List<HighScore> oldScores = highScores;
 
-        // get new highScores from file if possible (else use old high scores)
-        int lowScore;
-        if (canReadWriteFile) oldScores = reReadHighScores(file);
-        if (oldScores.size() < MAX_HIGH_SCORES) {
-            lowScore = 0;
+        recordForRanks(newScores);
+        if (unsureIfCanReadWriteFile()) {
+            testReadWriteFile(file, 1000, false, "");
+        }
+        int lowScore = 0;
+        List<HighScore> cutoff = canReadWriteFile ? readCutoffRecords(maxHighScores - 1) : null;
+        if (cutoff != null) {   // just the record at the cutoff, if the board is full
+            if (!cutoff.isEmpty()) lowScore = cutoff.get(0).getScore();
         } else {
-            lowScore = oldScores.get(oldScores.size()-1).getScore();
+            if (canReadWriteFile) oldScores = reReadHighScores(file);
+            if (oldScores.size() >= maxHighScores) lowScore = oldScores.get(oldScores.size()-1).getScore();
         }
-        // System.out.println("The lowest high score is " + lowScore);
-        if (newScore <= lowScore)  return;  // no need to update high scores
 
-        // get highScore name outside of fileLock since user input may take very long
-        HighScore newHigh = null; 
-        newHigh = new HighScore(inputHighScoreName(newScore), newScore);
- 
-        // ready to add new high score - lock for reread-update-write
-        // if can RW File ever ... wait for file to be unlocked . . . 
-        // try to add it ... if added, update localHS, else add to localHS
+        // only scores beating the current low score, and at most maxHighScores of them, can make the list.
+        List<Integer> candidates = new ArrayList<>();
+        for (Integer newScore: newScores) {
+            if (newScore > lowScore) candidates.add(newScore);
+        }
+        if (candidates.isEmpty()) return;   // no need to update high scores
+        Collections.sort(candidates, Collections.reverseOrder());
+        while (candidates.size() > maxHighScores) candidates.remove(maxHighScores);
+
+        // get names outside of fileLock since user input may take very long
+        List<HighScore> newHighs = new ArrayList<>();
+        for (Integer newScore: candidates) {
+            String name = nameProvider.requestName(newScore, "Please input your name.").exceptionally(e -> null).join();
+            if (name != null) newHighs.add(new HighScore(name, newScore));
+        }
+        if (newHighs.isEmpty()) return;   // no names given
+        if (windowedBoards != null) windowedBoards.addAll(newHighs);
+
         if (!canReadWriteFile) {
             reason = " because the file can't be read and written";
-        } else {  // canRWFile, try to do so
-            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
-                FileChannel chanRaf = raf.getChannel();
-                InputStream is = Channels.newInputStream(raf.getChannel());
-                BufferedReader br = new BufferedReader(new InputStreamReader(is));
-                OutputStream os = Channels.newOutputStream(chanRaf);
-                PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(os)));
-                // true => query user
-                FileLock lockRaf  = myTryLock(raf.getChannel(), 10000, true, lockMsg); ) {  
-        
-                if (lockRaf == null) {
-                    reason = " because the file is locked";  // save high-score locally
-                } else {
-                    System.out.println("Successfully lockedx1 File: " + file);
-                    fileScores = HighScoreFile.readHighScoresFromFile(br);
-
-                    // Update - add, sort, delete if too large
-                    fileScores.add(newHigh);  // add to list of highScores
-                    Collections.sort(fileScores);
-                    while (fileScores.size() > MAX_HIGH_SCORES) fileScores.remove(MAX_HIGH_SCORES);
- 
-                    // now write data
-                    raf.seek(0);  // must move to start of file after reading!!
-                    HighScoreFile.writeHighScoresToFile(fileScores, pw);
-                    System.out.println("Add: Wrote HighScores to File: " + file);
-                } // end if fileLocked or not  
-            } catch (OverlappingFileLockException e) {
-                reason = " because file already locked.";
-            } catch (ClosedChannelException e) {
-                // this can be thrown during twr autoclose!! MJS 8.6.17
-                reason = " because of a file lock problem (" + e.getClass().getSimpleName();
-                reason += " exception). Try locking file after all reader/writers created!";
-            } catch (FileNotFoundException e) {
-                reason = " because the file is not found: " + file;
-            } catch (IOException e) {
-                reason = " because of an IO Exception for file: " + e.getClass().getSimpleName();
-            } catch (Exception e) {
-                reason = " because of a Non-IO Exception creating file: " + e.getClass().getSimpleName();
-            } // end try-catch lock-file
-        } // end if canReadWriteFile
-        if (reason == null || reason == "") {
-            highScores = fileScores;
+        } else {
+            reason = saveHighScoresToFile(newHighs, lockMsg);
+        }
+        if (!savedOnlyLocally(reason)) {
             displayTitle = "High Scores of All Time";
-        } else { // Couldnt read-write to file => use local array values
-            // add, sort, delete if too large
-            if (newHigh == null) newHigh = new HighScore(inputHighScoreName(newScore), newScore);
-            highScores.add(newHigh);  // add to list of highScores
-            Collections.sort(highScores);
-            while (highScores.size() > MAX_HIGH_SCORES) highScores.remove(MAX_HIGH_SCORES);
+        } else {
+            saveHighScoresLocally(newHighs);
             displayTitle = "High Scores";
-        } // end if reason null or not
+        }
         displayHighScores(highScores, displayTitle);
-    
-    } // end addNewScore()
+    } // end addNewScores()
+
+
+    // Lock file, re-read it, merge in newHighs, write it back, then unlock - a single lock cycle no
+    // matter how many scores are added. Updates highScores and returns "" if sucessful, otherwise
+    // returns the reason the file could not be updated.
+    // Only the header region is locked while reading, and only the records from the first changed
+    // byte on are locked (and rewritten), so other processes can still read the records above.
+    // A single score is inserted without reading the file: its place is found by binary search of
+    // the fixed width records, and only the records below it are read and moved down.
+    protected String saveHighScoresToFile(List<HighScore> newHighs, String lockMsg)  {
+        return saveHighScoresToFile(newHighs, lockMsg, queryUser);
+    } // end saveHighScoresToFile()
+
+    // askUser false => never ask the user to keep waiting for a locked file, just time out.
+    protected String saveHighScoresToFile(List<HighScore> newHighs, String lockMsg, boolean askUser)  {
+        if (server != null) return saveHighScoresToServer(newHighs);
+        if (journal != null) return saveHighScoresToJournal(newHighs);
+        if (snapshotMode) return saveHighScoresToSnapshot(newHighs, lockMsg, askUser);
+        String reason = "";
+        List<HighScore> fileScores = null;
+        boolean inserted = false;    // true => saved by inserting one record, rather than merging the file
+        boolean missed = false;      // true => the one score no longer makes the board - nothing written
+
+        // threads of this JVM take turns at the file first, so they queue rather than overlap locks.
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, 10000);
+            // askUser true => ask user to keep waiting
+            FileLock lockRaf  = (handle == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                HighScoreFileRegions.lockHeader(handle.channel(), false, 10000, askUser, lockMsg)); ) {
+
+            if (lockRaf == null) {
+                reason = " because the file is locked";  // save high-score locally
+            } else {
+                FileChannel chanRaf = handle.channel();   // shared by this JVM - dont close it
+                System.out.println("Successfully lockedx1 File: " + file);
+                // one score into fixed width records - found by binary search, and only the records
+                // from its place on are locked and rewritten
+                int index = (newHighs.size() == 1) ? HighScoreFile.findInsertIndex(chanRaf, newHighs.get(0).getScore()) : -1;
+                if (index >= maxHighScores) {   // better scores filled the board since it was reserved
+                    missed = true;
+                    System.out.println("Add: HighScore no longer makes the board of File: " + file);
+                } else if (index >= 0) {
+                    long position = HighScoreFileRegions.recordPosition(index);
+                    try (FileLock lockRecords = metrics.lockResult(metrics.lockAttempt(),
+                                                HighScoreFileRegions.lockRecordsFrom(chanRaf, position, false, 10000))) {
+                        if (lockRecords == null) {
+                            reason = " because the file is locked";
+                        } else {
+                            long writeStart = System.nanoTime();
+                            inserted = HighScoreFile.insertHighScore(chanRaf, index, newHighs.get(0), maxHighScores);
+                            if (inserted) {
+                                if (durability == HighScoreFileSync.Durability.RECORD) HighScoreFileSync.forceRecord(chanRaf);
+                                metrics.write(writeStart, Math.max(0, chanRaf.size() - position));
+                                HighScoreFileStamp.bumpSequence(file);   // readers caching the file re-read it
+                                System.out.println("Add: Inserted HighScore as record " + index + " of File: " + file);
+                            }
+                        }
+                    } // end try lock records
+                }
+                if (!inserted && !missed && reason.isEmpty()) {   // merge into the whole file
+                    long readStart = System.nanoTime();
+                    ByteBuffer oldBytes = HighScoreFile.readBytes(chanRaf);
+                    metrics.read(readStart, oldBytes.limit());
+                    fileScores = HighScoreFile.readHighScoresFromFile(oldBytes.duplicate());
+
+                    // Update - add, keep only the top scores
+                    fileScores.addAll(newHighs);  // add to list of highScores
+                    fileScores = topHighScores(fileScores);
+
+                    // now write data - from first changed byte on
+                    byte[] newBytes = HighScoreFile.toBytes(fileScores);
+                    int start = 0;
+                    while (start < newBytes.length && start < oldBytes.limit() && newBytes[start] == oldBytes.get(start)) start++;
+                    try (FileLock lockRecords = metrics.lockResult(metrics.lockAttempt(),
+                                                HighScoreFileRegions.lockRecordsFrom(chanRaf, start, false, 10000))) {
+                        if (lockRecords == null) {
+                            reason = " because the file is locked";
+                        } else {
+                            long writeStart = System.nanoTime();
+                            HighScoreFile.writeBytes(chanRaf, newBytes, start);
+                            if (durability == HighScoreFileSync.Durability.RECORD) HighScoreFileSync.forceRecord(chanRaf);
+                            metrics.write(writeStart, newBytes.length - start);
+                            HighScoreFileStamp.bumpSequence(file);   // readers caching the file re-read it
+                            System.out.println("Add: Wrote HighScores to File: " + file);
+                        }
+                    } // end try lock records
+                } // end if inserted or not
+            } // end if fileLocked or not
+        } catch (OverlappingFileLockException e) {
+            reason = " because file already locked.";
+        } catch (ClosedChannelException e) {
+            // this can be thrown during twr autoclose!! MJS 8.6.17
+            reason = " because of a file lock problem (" + e.getClass().getSimpleName();
+            reason += " exception). Try locking file after all reader/writers created!";
+        } catch (FileNotFoundException e) {
+            reason = " because the file is not found: " + file;
+        } catch (IOException e) {
+            reason = " because of an IO Exception for file: " + e.getClass().getSimpleName();
+        } catch (Exception e) {
+            reason = " because of a Non-IO Exception creating file: " + e.getClass().getSimpleName();
+        } // end try-catch lock-file
+        if (reason.isEmpty() && !missed && durability == HighScoreFileSync.Durability.GROUP) reason = forceGroup(file);
+        // after an insert (or a miss) the board is read back with the file unlocked, under a shared lock
+        if (reason.isEmpty()) highScores = (inserted || missed) ? reReadHighScores(file) : fileScores;
+        return (reason.isEmpty() && missed) ? MISSED_BOARD : reason;
+    } // end saveHighScoresToFile()
+
+
+    // File records from index first to the cutoff (index maxHighScores-1), read with a shared lock on
+    // just those records - none if the file has no more than first records.  Returns null if the
+    // file isnt fixed width records, is locked, or isnt read in place (journal, snapshot or server mode).
+    protected List<HighScore> readCutoffRecords(int first)  {
+        if (journal != null || snapshotMode || server != null) return null;
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, READ_LOCK_TIMEOUT);
+             FileLock lockRecords = (handle == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                    HighScoreFileRegions.lockRecordsToRead(handle.channel(),
+                                    HighScoreFileRegions.recordPosition(first), READ_LOCK_TIMEOUT))) {
+            if (lockRecords == null) return null;
+            FileChannel chanRaf = handle.channel();   // shared by this JVM - dont close it
+            int count = HighScoreFile.getRecordCount(chanRaf);
+            if (count < 0) return null;
+            int end = Math.min(count, maxHighScores);
+            long readStart = System.nanoTime();
+            List<HighScore> records = HighScoreFile.readRecords(chanRaf, Math.min(first, end), end);
+            metrics.read(readStart, HighScoreFileRegions.recordPosition(Math.max(0, end - first)));
+            return records;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            return null;
+        } // end try with resources
+    } // end readCutoffRecords()
+
+
+    // Wait, with no lock held, for a force covering what this process wrote to file (GROUP durability).
+    // Returns "" once it is on disk, otherwise the reason it may not be.
+    protected String forceGroup(File file)  {
+        try {
+            HighScoreFileSync.forceGroup(file);
+            return "";
+        } catch (IOException e) {
+            return " because the file could not be forced to disk: " + e.getClass().getSimpleName();
+        } // end try-catch force
+    } // end forceGroup()
+
+
+    // Journal mode version of saveHighScoresToFile - append newHighs to the journal, leaving the
+    // high score file to the compactor.  Returns "" if sucessful, otherwise the reason it failed.
+    protected String saveHighScoresToJournal(List<HighScore> newHighs)  {
+        String reason = "";
+        try {
+            if (!journal.append(newHighs, JOURNAL_LOCK_TIMEOUT)) reason = " because the journal is locked";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            reason = " because saving was interrupted";
+        } catch (IOException e) {
+            reason = " because of an IO Exception for journal: " + e.getClass().getSimpleName();
+        } // end try-catch append
+        if (reason.isEmpty()) {
+            List<HighScore> newScores = new ArrayList<>(highScores);
+            newScores.addAll(newHighs);
+            highScores = topHighScores(newScores);
+        }
+        return reason;
+    } // end saveHighScoresToJournal()
+
+
+    // Server mode version of saveHighScoresToFile - the server saves newHighs and sends back the board.
+    // Returns "" if sucessful, otherwise the reason it failed.
+    protected String saveHighScoresToServer(List<HighScore> newHighs)  {
+        try {
+            highScores = server.submit(file.getName(), newHighs, maxHighScores);
+            return "";
+        } catch (IOException e) {
+            return " because the leaderboard server can't be reached (" + e.getClass().getSimpleName() + ")";
+        } // end try-catch submit
+    } // end saveHighScoresToServer()
+
+
+    // Snapshot mode version of saveHighScoresToFile - writers take turns on the <file>.lock sidecar, then
+    // read the file, merge and publish a whole new file.  Returns "" if sucessful, otherwise the reason.
+    protected String saveHighScoresToSnapshot(List<HighScore> newHighs, String lockMsg, boolean askUser)  {
+        String reason = "";
+        List<HighScore> fileScores = null;
+        File lockFile = new File(file.getPath() + LOCK_SUFFIX);
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(lockFile, 10000);
+             FileLock lockWriters = (handle == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                    MyTryLock.myTryLock(handle.channel(), 10000, askUser, lockMsg))) {
+            long readStart = System.nanoTime();
+            ByteBuffer fileBytes = (lockWriters == null) ? null : readFileBytes(file, false);   // writers take turns on lockFile
+            if (fileBytes == null) {
+                reason = " because the file is locked";  // save high-score locally
+            } else {
+                fileScores = HighScoreFile.readHighScoresFromFile(fileBytes);
+                metrics.read(readStart, fileBytes.limit());
+                fileScores.addAll(newHighs);
+                fileScores = topHighScores(fileScores);
+                long writeStart = System.nanoTime();
+                HighScoreFile.publishHighScores(fileScores, file);
+                metrics.write(writeStart, file.length());
+                HighScoreFileStamp.bumpSequence(file);   // readers caching the file re-read it
+            }
+        } catch (OverlappingFileLockException e) {
+            reason = " because file already locked.";
+        } catch (FileNotFoundException e) {
+            reason = " because the file is not found: " + file;
+        } catch (IOException e) {
+            reason = " because of an IO Exception for file: " + e.getClass().getSimpleName();
+        } catch (Exception e) {
+            reason = " because of a Non-IO Exception creating file: " + e.getClass().getSimpleName();
+        } // end try-catch lock-file
+        if (reason.isEmpty()) highScores = fileScores;
+        return reason;
+    } // end saveHighScoresToSnapshot()
+
+
+    // Non blocking version of saveHighScoresToFile, for callers (such as game loops) that cant wait on
+    // a busy file.  Completes with "" once saved, or the reason the scores were only saved locally.
+    public CompletableFuture<String> saveHighScoresAsync(List<HighScore> newHighs, long timeout)  {
+        if (!canReadWriteFile || journal != null || snapshotMode || server != null
+            || durability != HighScoreFileSync.Durability.NONE) {   // modes with their own saves
+            return CompletableFuture.supplyAsync(() -> {   // on the async I/O threads - these saves block
+                String reason = canReadWriteFile ? saveHighScoresToFile(newHighs, "")
+                                                 : " because the file can't be read and written";
+                if (savedOnlyLocally(reason)) saveHighScoresLocally(newHighs);
+                return reason;
+            }, HighScoreFileAsync.IO);
+        }
+        return HighScoreFileAsync.submitScoresAsync(newHighs, file, maxHighScores, timeout).handle((board, e) -> {
+            if (e == null) {
+                highScores = board;
+                return "";
+            }
+            // failed => the scores didnt reach the file (a write once begun is never cancelled or timed out)
+            saveHighScoresLocally(newHighs);
+            Throwable cause = (e.getCause() == null) ? e : e.getCause();
+            return " because of " + cause.getClass().getSimpleName() + " saving to file: " + file;
+        });
+    } // end saveHighScoresAsync()
+
+
+    // true if a save's reason means the scores didnt reach the file and should be kept locally -
+    // not when they were saved (""), or just didnt make the board (MISSED_BOARD, WINDOWED_ONLY).
+    protected static boolean savedOnlyLocally(String reason)  {
+        return !reason.isEmpty() && !reason.equals(MISSED_BOARD) && !reason.equals(WINDOWED_ONLY);
+    } // end savedOnlyLocally()
+
+    // Couldnt read-write to file => add new high scores to local list, keep only the top scores.
+    // A new list replaces highScores, so threads reading the old one are never disturbed.
+    protected synchronized void saveHighScoresLocally(List<HighScore> newHighs)  {
+        metrics.localFallback(newHighs.size());   // these scores never reach the file
+        List<HighScore> merged = new ArrayList<>(highScores);
+        merged.addAll(newHighs);  // add to list of highScores
+        highScores = topHighScores(merged);
+    } // end saveHighScoresLocally()
+
+
+    // Best maxHighScores of a list of high scores, highest first.
+    public List<HighScore> topHighScores(List<HighScore> scores)  {
+        return Leaderboard.topOf(scores, maxHighScores);
+    } // end topHighScores()
+
+
+    // Record statistics for a saved batch and report them.
+    protected void recordBatch(int scores, long nanos)  {
+        synchronized (this) {
+            batchCount++;
+            batchScoreCount += scores;
+            batchNanos += nanos;
+            lastBatchNanos = nanos;
+            if (nanos > maxBatchNanos) maxBatchNanos = nanos;
+        }
+        System.out.printf("HighScoreProcessor batch %d: %d scores in %.2f ms (avg %.2f ms, max %.2f ms, %.1f scores/sec)%n",
+                          getBatchCount(), scores, nanos / 1e6, getAverageBatchMillis(),
+                          getMaxBatchMillis(), getBatchScoresPerSecond());
+    } // end recordBatch()
 
 
     // Get updated high scores if readable from high score file, otherwise return old values.
@@ -321,10 +1000,10 @@ public class HighScoreProcessor implements Runnable {
         List<HighScore> newScores = highScores;
         if (canReadWriteFile) {
             try {
-                newScores = HighScoreFile.readHighScoresFromFile(br);
-                Collections.sort(newScores);
-                while (newScores.size() > MAX_HIGH_SCORES) newScores.remove(MAX_HIGH_SCORES);
+                // only the best maxHighScores are held while reading, not every line
+                newScores = HighScoreFile.readTopHighScores(HighScoreFile.streamHighScores(br), maxHighScores, false);
             } catch (Exception e) { 
+                metrics.parseFailure();
                 System.out.println("HighScoreProcessor: reRead(br): Error reading from file.");
                 System.out.println("Using old copy of high scores.");
                 return highScores; // any problem => just return old high scores
@@ -335,18 +1014,148 @@ public class HighScoreProcessor implements Runnable {
 
 
 
+    // Byte level version of reReadHighScores(br) - avoids a String per line.
+    public List<HighScore> reReadHighScores(InputStream is)  {
+
+        List<HighScore> newScores = highScores;
+        if (canReadWriteFile) {
+            try {
+                newScores = HighScoreFile.readTopHighScores(HighScoreFile.streamHighScores(is), maxHighScores, false);
+            } catch (Exception e) {
+                metrics.parseFailure();
+                System.out.println("HighScoreProcessor: reRead(is): Error reading from file.");
+                System.out.println("Using old copy of high scores.");
+                return highScores; // any problem => just return old high scores
+            } // end try catch
+        }
+        return newScores;
+    } // End reReadHighScores()
+
+
     // Get updated high scores from high score file if readable, otherwise return old values.
+    // The file is only read and parsed again if its stamp (size, time, sequence) has changed.
     public List<HighScore> reReadHighScores(File file)  {
 
-        List<HighScore> newScores = highScores;
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            newScores = reReadHighScores(br);
+        if (!canReadWriteFile) return highScores;
+        if (server != null) {   // no file here to stamp - the server has the board in memory
+            List<HighScore> newScores = readHighScoresFromFile(file);
+            return (newScores == null) ? highScores : newScores;
+        }
+        HighScoreFileStamp stamp = null;
+        try {
+            stamp = HighScoreFileStamp.of(file, (journal == null) ? null : journal.getJournalFile());
+        } catch (IOException e) {
+            // cant stamp it - read it anyway, without caching
+        }
+        synchronized (this) {
+            if (stamp != null && stamp.equals(cachedStamp) && file.equals(this.file)) {
+                cacheHits++;
+                return new ArrayList<>(cachedScores);   // a copy, callers may add to it
+            }
+            cacheMisses++;
+        }
+        List<HighScore> newScores = readHighScoresFromFile(file);
+        if (newScores != null && file.equals(this.file)) {
+            synchronized (this) {
+                cachedScores = new ArrayList<>(newScores);
+                cachedStamp = stamp;
+            }
+        }
+        return (newScores == null) ? highScores : newScores;
+    } // End reReadHighScores()
+
+    // Forget the board cached by reReadHighScores, so the next read parses the file again - for
+    // changes to what a read returns that leave the file's stamp as it was.
+    protected synchronized void clearCache()  {
+        cachedScores = null;
+        cachedStamp = null;
+    } // End clearCache()
+
+    // Read and parse high scores from file (merged with any journal), or null if it cant be.
+    // Records are read under a shared lock, so readers dont block each other or see a partial write.
+    protected List<HighScore> readHighScoresFromFile(File file)  {
+
+        List<HighScore> newScores = null;
+        if (server != null) {
+            try {
+                return server.top(file.getName(), maxHighScores);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        if (journal != null) {   // file merged with journal scores not yet compacted into it
+            return journal.readMerged(READ_LOCK_TIMEOUT);
+        }
+        if (snapshotMode) {      // files are only ever replaced whole - no lock needed
+            try {
+                long readStart = System.nanoTime();
+                ByteBuffer fileBytes = readFileBytes(file, false);
+                if (fileBytes == null) return null;
+                metrics.read(readStart, fileBytes.limit());
+                return topHighScores(HighScoreFile.readHighScoresFromFile(fileBytes));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();  // allow interrupt to occur.
+                return null;
+            } catch (Exception e) {
+                metrics.parseFailure();
+                return null;
+            }
+        }
+        ByteBuffer fileBytes = null;
+        try {
+            long readStart = System.nanoTime();
+            fileBytes = readFileBytes(file, true);
+            if (fileBytes == null) return null;   // being written too long - use old copy
+            metrics.read(readStart, fileBytes.limit());
         } catch (IOException e) {
             // return old highScores
-            return highScores;
-        } // end try with resources
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
+            return null;
+        } // end try read
+        try {
+            newScores = topHighScores(HighScoreFile.readHighScoresFromFile(fileBytes));
+        } catch (Exception e) {
+            metrics.parseFailure();
+            System.out.println("HighScoreProcessor: reRead(file): Error reading from file.");
+            System.out.println("Using old copy of high scores.");
+            return null; // any problem => just return old high scores
+        } // end try catch
         return newScores;
-    } // End reReadHighScores()
+    } // End readHighScoresFromFile()
+
+    // Whole of file, read through this JVM's shared channel for it (see FileLockCoordinator) - opening
+    // and closing a channel of its own would drop every FileLock this JVM holds on the file.  The
+    // records are locked shared while read, unless locked is false (snapshot files are only replaced
+    // whole).  Returns null if the file stays locked for READ_LOCK_TIMEOUT millisecs.
+    protected ByteBuffer readFileBytes(File file, boolean locked) throws InterruptedException, IOException {
+        if (!file.exists()) throw new FileNotFoundException("High score file not found: " + file);
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, READ_LOCK_TIMEOUT);
+             FileLock lockRecords = (handle == null || !locked) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                    HighScoreFileRegions.lockRecordsToRead(handle.channel(), 0, READ_LOCK_TIMEOUT))) {
+            if (handle == null || (locked && lockRecords == null)) return null;
+            return HighScoreFile.readBytes(handle.channel());   // shared by this JVM - dont close it
+        } // end try lock records
+    } // End readFileBytes()
+
+    // Replace the contents of file with highScores through this JVM's shared channel for it, holding
+    // the header and records exclusive.  false if it stays locked for timeout millisecs.
+    protected boolean writeFileBytes(File file, List<HighScore> highScores, long timeout)
+                                     throws InterruptedException, IOException {
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(file, timeout);
+             FileLock lockHeader = (handle == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                   HighScoreFileRegions.lockHeader(handle.channel(), false, timeout));
+             FileLock lockRecords = (lockHeader == null) ? null : metrics.lockResult(metrics.lockAttempt(),
+                                    HighScoreFileRegions.lockRecordsFrom(handle.channel(), 0, false, timeout))) {
+            if (lockRecords == null) return false;
+            long writeStart = System.nanoTime();
+            byte[] bytes = HighScoreFile.toBytes(highScores);
+            HighScoreFile.writeBytes(handle.channel(), bytes, 0);   // shared by this JVM - dont close it
+            metrics.write(writeStart, bytes.length);
+            return true;
+        } // end try lock records
+    } // End writeFileBytes()
  
 
    // Display high scores - get scores from file or high score array.
@@ -412,8 +1221,14 @@ public class HighScoreProcessor implements Runnable {
 
         List<HighScore> newList = getDefaultHighScores( );
         try {
-             List<HighScore> readList = HighScoreFile.readHighScoresFromFile(file);
-             newList = readList;
+             ByteBuffer fileBytes = readFileBytes(file, true);   // through the coordinator, never a stream of its own
+             if (fileBytes == null) {
+                 System.out.println("File locked while trying to show original scores.");
+             } else {
+                 newList = HighScoreFile.readHighScoresFromFile(fileBytes);
+             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // allow interrupt to occur.
         } catch (IllegalArgumentException e) {
             System.out.println("Bad data found while trying to show original scores.");
             System.out.println(e.getMessage());
@@ -426,8 +1241,7 @@ public class HighScoreProcessor implements Runnable {
             e.printStackTrace();
         } // end try-catch
         // sort and eliminate extra entries (we only want some)
-        Collections.sort(newList);  // highest to lowest order
-        while (newList.size() > MAX_HIGH_SCORES) newList.remove(MAX_HIGH_SCORES);
+        newList = topHighScores(newList);  // highest to lowest order
         return newList;
     } // End getOriginalHighScores()
 
@@ -0,0 +1,413 @@
+/* High Score Rank Index class - what place any score takes among every score ever submitted.
+ - started 10.18.26
+ The high score file only holds the top of the board, so it can only say whether a score made the
+ top.  This index counts every submitted score, so countAbove(score) and rankOf(score) work for any
+ score, in O(log n) for n distinct scores.
+ Counts are kept per distinct score in a Fenwick tree (binary indexed tree) over the distinct scores,
+ in ascending order.  A score already in the tree is counted in O(log n).  A new distinct score goes
+ in a small sorted pending array instead, which is folded into the tree - rebuilt in O(n) - once it
+ fills, so the tree's keys stay a plain sorted array.
+ Every submitted score is appended as a 4 byte int to <high score file>.ranks, a tail log after an
+ 8 byte generation, under a lock held only for that write.  Once the tail holds MAX_PENDING scores,
+ the process that appended them folds them into the tree, saves the folded keys and counts to
+ <high score file>.ranks.snapshot, and empties the tail under the next generation.  So loading reads
+ the snapshot in O(n) plus a short tail, and refresh() applies just what other processes appended
+ since - or loads again once another process has folded the tail away.
+ The snapshot is renamed into place whole, and holds the generation and length of the tail it
+ counted.  The tail is marked RESETTING before it is emptied, so a crash at any point counts nothing
+ twice.  A partial int left by a crash is ignored, and overwritten by the next append.
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import util.FileLockCoordinator;
+import util.MyTryLock;
+
+// -------------------------------------------
+public class HighScoreRankIndex {
+
+    static final String RANKS_SUFFIX = ".ranks";
+    static final String SNAPSHOT_SUFFIX = ".ranks.snapshot";
+    static final int SCORE_SIZE = 4;             // bytes per score in the log
+    static final int HEADER_SIZE = 8;            // the tail's generation, before its scores
+    static final long RESETTING = -1;            // generation of a tail the snapshot counted, being emptied
+    static final int SNAPSHOT_HEADER_SIZE = 20;  // tail generation and length counted, and number of keys
+    // new distinct scores held before folding into the tree, and scores in the tail before folding
+    // it into the snapshot
+    static final int MAX_PENDING = 4096;
+
+    // instance variables
+    private final File ranksFile;
+    private final File snapshotFile;
+    private int[] keys = new int[0];             // distinct scores in the tree, ascending
+    private long[] counts = new long[0];         // times each key was submitted
+    private long[] tree = new long[1];           // Fenwick tree of counts, 1 based
+    private long treeTotal = 0;                  // scores counted in the tree
+    private int[] pending = new int[16];         // scores not in keys, ascending (repeats allowed)
+    private int pendingSize = 0;
+    private long generation = 0;                 // generation of the tail counted
+    private long snapshotGeneration = RESETTING; // generation of the tail the snapshot counted, if any
+    private long readPosition = HEADER_SIZE;     // bytes of the tail already counted
+    private boolean unlogged = false;            // holds scores added but not logged - never snapshot it
+
+  // ----------- HighScoreRankIndex Constructors -------------------
+  // ---------------------------------------------------------------
+
+    // Index of the scores submitted to file - call load() to read those already in its log.
+    public HighScoreRankIndex(File file) {
+        this.ranksFile = new File(file.getPath() + RANKS_SUFFIX);
+        this.snapshotFile = new File(file.getPath() + SNAPSHOT_SUFFIX);
+    } // end HighScoreRankIndex constructor
+
+ // HighScoreRankIndex getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public File getRanksFile() {
+        return ranksFile;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    // scores counted
+    public synchronized long getTotal() {
+        return treeTotal + pendingSize;
+    }
+
+    // distinct scores counted (pending ones may repeat)
+    public synchronized int getDistinctScores() {
+        return keys.length + pendingSize;
+    }
+
+  // ----------- HighScoreRankIndex methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Number of scores counted that beat score.
+    public synchronized long countAbove(int score) {
+        int atOrBelow = upperBound(keys, keys.length, score);   // keys <= score
+        long above = treeTotal - prefixSum(atOrBelow);
+        return above + pendingSize - upperBound(pending, pendingSize, score);
+    } // End countAbove()
+
+    // Place score takes among the scores counted - 1 if none beat it.  Equal scores share a place.
+    public long rankOf(int score) {
+        return countAbove(score) + 1;
+    } // End rankOf()
+
+    // Count score in this index only (see record to save it to the log) - until the log is loaded again.
+    public synchronized void add(int score) {
+        unlogged = true;
+        count(score);
+    } // End add()
+
+    // Count many scores in this index only, as add does.
+    public synchronized void addAll(int[] scores, int length) {
+        unlogged = true;
+        countAll(scores, length);
+    } // End addAll()
+
+    // Read the snapshot and the tail after it again, counting every score logged.  false if the log
+    // stayed locked for timeout millisecs.
+    public synchronized boolean load(long timeout) throws InterruptedException, IOException {
+        clear();
+        if (!ranksFile.exists() && !snapshotFile.exists()) return true;
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(ranksFile, timeout);
+             FileLock lockRanks = (handle == null) ? null : MyTryLock.myTryLock(handle.channel(),
+                                  MyTryLock.getDefaultStrategy(), 0L, Long.MAX_VALUE, true, timeout)) {
+            if (lockRanks == null) return false;
+            reload(handle.channel());   // shared by this JVM - dont close it
+            return true;
+        } // end try lock ranks
+    } // End load()
+
+    // Count the scores appended to the log (by any process) since it was last read.
+    // false if it stayed locked for timeout millisecs - they are counted next time.
+    public synchronized boolean refresh(long timeout) throws InterruptedException, IOException {
+        if (!ranksFile.exists()) return true;
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(ranksFile, timeout);
+             FileLock lockRanks = (handle == null) ? null : MyTryLock.myTryLock(handle.channel(),
+                                  MyTryLock.getDefaultStrategy(), 0L, Long.MAX_VALUE, true, timeout)) {
+            if (lockRanks == null) return false;
+            catchUp(handle.channel());   // shared by this JVM - dont close it
+            return true;
+        } // end try lock ranks
+    } // End refresh()
+
+    // Append scores to the log, waiting up to timeout millisecs for its lock, then count every score
+    // appended since the last refresh (these, and any from other processes).  Once the tail holds
+    // MAX_PENDING scores, folds it into the snapshot.  false if the log stayed locked.
+    public synchronized boolean record(List<Integer> scores, long timeout) throws InterruptedException, IOException {
+        ByteBuffer bb = ByteBuffer.allocate(scores.size() * SCORE_SIZE);
+        for (int score: scores) bb.putInt(score);
+        bb.flip();
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(ranksFile, timeout);
+             FileLock lockRanks = (handle == null) ? null :
+                                  MyTryLock.myTryLock(handle.channel(), MyTryLock.getDefaultStrategy(), timeout)) {
+            if (lockRanks == null) return false;
+            FileChannel fc = handle.channel();   // shared by this JVM - dont close it
+            catchUp(fc);
+            if (generation == RESETTING) {
+                startTail(fc, snapshotGeneration + 1);   // finish emptying the tail the snapshot counted
+            } else if (fc.size() < HEADER_SIZE) {
+                startTail(fc, generation);
+            }
+            long position = tailEnd(fc);   // over any partial int
+            while (bb.hasRemaining()) {
+                position += fc.write(bb, position);
+            }
+            readTail(fc);
+            if (!unlogged && readPosition - HEADER_SIZE >= (long) MAX_PENDING * SCORE_SIZE) compact(fc);
+            return true;
+        } // end try lock ranks
+    } // End record()
+
+    // Count score.
+    private void count(int score) {
+        int index = Arrays.binarySearch(keys, score);
+        if (index >= 0) {
+            counts[index]++;
+            for (int i = index + 1; i < tree.length; i += i & -i) tree[i]++;
+            treeTotal++;
+            return;
+        }
+        if (pendingSize == MAX_PENDING) fold(new int[0], 0);
+        if (pendingSize == pending.length) pending = Arrays.copyOf(pending, pending.length * 2);
+        int at = upperBound(pending, pendingSize, score);
+        System.arraycopy(pending, at, pending, at + 1, pendingSize - at);
+        pending[at] = score;
+        pendingSize++;
+    } // End count()
+
+    // Count many scores - large batches (such as a whole tail) are sorted and folded in with one rebuild.
+    private void countAll(int[] scores, int length) {
+        if (length <= MAX_PENDING - pendingSize) {
+            for (int i = 0; i < length; i++) count(scores[i]);
+            return;
+        }
+        int[] sorted = Arrays.copyOf(scores, length);
+        Arrays.sort(sorted);
+        fold(sorted, length);
+    } // End countAll()
+
+    // Count nothing, as before the log is read.
+    private void clear() {
+        keys = new int[0];
+        counts = new long[0];
+        tree = new long[1];
+        treeTotal = 0;
+        pendingSize = 0;
+        generation = 0;
+        snapshotGeneration = RESETTING;
+        readPosition = HEADER_SIZE;
+        unlogged = false;
+    } // End clear()
+
+    // Count what was appended to the tail since it was last read - or read the snapshot and tail again
+    // if another process folded the tail into the snapshot since.  Needs the log locked.
+    private void catchUp(FileChannel fc) throws IOException {
+        if (readGeneration(fc) != generation || tailEnd(fc) < readPosition) {
+            reload(fc);
+        } else {
+            readTail(fc);
+        }
+    } // End catchUp()
+
+    // Count the snapshot, then the tail from where the snapshot left off.  Needs the log locked.
+    private void reload(FileChannel fc) throws IOException {
+        clear();
+        generation = readGeneration(fc);
+        if (snapshotFile.exists()) {
+            try {
+                ByteBuffer bb = ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath()));
+                long tailGeneration = bb.getLong();
+                long counted = bb.getLong();
+                int n = bb.getInt();
+                keys = new int[n];
+                counts = new long[n];
+                bb.asIntBuffer().get(keys);
+                bb.position(bb.position() + n * SCORE_SIZE);
+                bb.asLongBuffer().get(counts);
+                buildTree();
+                snapshotGeneration = tailGeneration;
+                if (tailGeneration == generation) {   // the snapshot counted this tail up to counted
+                    readPosition = Math.min(counted, tailEnd(fc));
+                }
+            } catch (BufferUnderflowException e) {
+                clear();
+                throw new IOException("Ranks snapshot cut short: " + snapshotFile);
+            } // end try-catch read snapshot
+        } // end if snapshot
+        if (generation == RESETTING) {   // the snapshot counted all of it
+            readPosition = tailEnd(fc);
+            return;
+        }
+        readTail(fc);
+    } // End reload()
+
+    // Count the scores in the tail past readPosition.  Needs the log locked.
+    private void readTail(FileChannel fc) throws IOException {
+        long end = tailEnd(fc);
+        if (end <= readPosition) return;
+        if (end - readPosition > Integer.MAX_VALUE) throw new IOException("Ranks file too large: " + ranksFile);
+        ByteBuffer bb = ByteBuffer.allocate((int) (end - readPosition));
+        while (bb.hasRemaining()) {
+            if (fc.read(bb, readPosition + bb.position()) < 0) break;   // file shrank while reading
+        }
+        bb.flip();
+        IntBuffer ib = bb.asIntBuffer();
+        int[] scores = new int[ib.remaining()];
+        ib.get(scores);
+        countAll(scores, scores.length);
+        readPosition += (long) scores.length * SCORE_SIZE;
+    } // End readTail()
+
+    // Fold the tail into the snapshot - save every key and its count to a temp file, rename it over the
+    // snapshot, then empty the tail under the next generation.  Needs the log locked exclusive and every
+    // score logged counted, and no others.
+    private void compact(FileChannel fc) throws IOException {
+        fold(new int[0], 0);
+        ByteBuffer bb = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE + keys.length * (SCORE_SIZE + 8));
+        bb.putLong(generation).putLong(readPosition).putInt(keys.length);
+        for (int key: keys) bb.putInt(key);
+        for (long count: counts) bb.putLong(count);
+        bb.flip();
+        Path target = snapshotFile.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), snapshotFile.getName(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (bb.hasRemaining()) out.write(bb);
+                out.force(true);   // contents on disk before the rename makes them visible
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);   // best this file system can do
+            }
+        } finally {
+            Files.deleteIfExists(temp);   // only still there if something failed
+        }
+        snapshotGeneration = generation;
+        startTail(fc, generation + 1);
+    } // End compact()
+
+    // Empty the tail and start it at newGeneration.  It is marked RESETTING first, so a crash before
+    // the new generation is written leaves a tail every process knows the snapshot counted.
+    // Needs the log locked exclusive.
+    private void startTail(FileChannel fc, long newGeneration) throws IOException {
+        writeGeneration(fc, RESETTING);
+        fc.truncate(HEADER_SIZE);
+        writeGeneration(fc, newGeneration);
+        generation = newGeneration;
+        readPosition = HEADER_SIZE;
+    } // End startTail()
+
+    // Write the tail's generation over its header.
+    private static void writeGeneration(FileChannel fc, long generation) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE);
+        bb.putLong(generation);
+        bb.flip();
+        while (bb.hasRemaining()) {
+            fc.write(bb, bb.position());
+        }
+    } // End writeGeneration()
+
+    // generation of the tail - 0 before its header is written
+    private static long readGeneration(FileChannel fc) throws IOException {
+        if (fc.size() < HEADER_SIZE) return 0;
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE);
+        while (bb.hasRemaining()) {
+            if (fc.read(bb, bb.position()) < 0) return 0;   // file shrank while reading
+        }
+        bb.flip();
+        return bb.getLong();
+    } // End readGeneration()
+
+    // end of the last whole score in the tail
+    private static long tailEnd(FileChannel fc) throws IOException {
+        long size = fc.size();
+        if (size < HEADER_SIZE) return HEADER_SIZE;
+        return HEADER_SIZE + (size - HEADER_SIZE) / SCORE_SIZE * SCORE_SIZE;
+    } // End tailEnd()
+
+    // Merge the pending scores and sorted[0..length) into the keys, and rebuild the tree in O(n).
+    private void fold(int[] sorted, int length) {
+        int[] newKeys = new int[keys.length + pendingSize + length];
+        long[] newCounts = new long[newKeys.length];
+        int n = 0;
+        int k = 0;
+        int p = 0;
+        int s = 0;
+        while (k < keys.length || p < pendingSize || s < length) {
+            int key = Integer.MAX_VALUE;   // smallest score left in the three
+            if (k < keys.length) key = keys[k];
+            if (p < pendingSize && pending[p] < key) key = pending[p];
+            if (s < length && sorted[s] < key) key = sorted[s];
+            long count = 0;
+            if (k < keys.length && keys[k] == key) count += counts[k++];
+            while (p < pendingSize && pending[p] == key) {
+                count++;
+                p++;
+            }
+            while (s < length && sorted[s] == key) {
+                count++;
+                s++;
+            }
+            newKeys[n] = key;
+            newCounts[n++] = count;
+        } // end while any left
+        keys = Arrays.copyOf(newKeys, n);
+        counts = Arrays.copyOf(newCounts, n);
+        buildTree();
+        pendingSize = 0;
+    } // End fold()
+
+    // Build the tree over the keys' counts in O(n).
+    private void buildTree() {
+        int n = keys.length;
+        tree = new long[n + 1];
+        treeTotal = 0;
+        for (int i = 1; i <= n; i++) {   // each node passes its sum up to its parent
+            tree[i] += counts[i - 1];
+            treeTotal += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= n) tree[parent] += tree[i];
+        }
+    } // End buildTree()
+
+    // sum of the counts of the first count keys
+    private long prefixSum(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    } // End prefixSum()
+
+    // number of values of sorted[0..length) that are <= score
+    private static int upperBound(int[] sorted, int length, int score) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        } // end while
+        return low;
+    } // End upperBound()
+
+} // end class HighScoreRankIndex
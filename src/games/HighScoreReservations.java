@@ -0,0 +1,148 @@
+/* High Score Reservations class - places on a high score board held for players typing their names.
+ - started 10.18.26
+ Saving a high score in two phases keeps name entry out of every file lock:
+   reserve - with the <high score file>.reservations sidecar locked, check the score beats the
+             board plus every live reservation, and if so add a reservation for it.
+   commit  - once the name is in, save the score (never asking the user to wait on a locked file),
+             then remove its reservation with the sidecar locked.  The sidecar isnt held while saving.
+   expire  - remove a reservation whose name never came (cancelled), or let it lapse at its deadline.
+ Locks are held only for the file I/O.  Since reservations count against the cutoff, two players
+ cant both be told they made the last place on the board.
+ The sidecar holds fixed size records: id, score, and the time (epoch millisecs) it lapses.
+ Locks are taken sidecar first, then high score file, never the other way.
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import util.FileLockCoordinator;
+import util.MyTryLock;
+
+// -------------------------------------------
+public class HighScoreReservations {
+
+    static final String RESERVATIONS_SUFFIX = ".reservations";
+    static final int RECORD_SIZE = 20;                 // id=8, score=4, lapses at=8
+    static final long DEFAULT_HOLD_MILLIS = 120000;    // how long a player has to type their name
+
+    // instance variables
+    private final File reservationsFile;
+
+  // ----------- HighScoreReservations Constructors -------------------
+  // ---------------------------------------------------------------
+
+    public HighScoreReservations(File file) {
+        this.reservationsFile = new File(file.getPath() + RESERVATIONS_SUFFIX);
+    } // end HighScoreReservations constructor
+
+ // HighScoreReservations getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public File getReservationsFile() {
+        return reservationsFile;
+    }
+
+  // ----------- HighScoreReservations methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Lock the sidecar (waiting up to timeout millisecs), and run action on the live reservations.
+    // Changes action makes to the list are written back.  Lapsed reservations are dropped.
+    // Returns actions result, or throws IOException if the sidecar stayed locked.
+    public <T> T update(long timeout, Function<List<Reservation>, T> action) throws InterruptedException, IOException {
+        try (FileLockCoordinator.Handle handle = FileLockCoordinator.lock(reservationsFile, timeout);
+             FileLock lockReservations = (handle == null) ? null :
+                                         MyTryLock.myTryLock(handle.channel(), MyTryLock.getDefaultStrategy(), timeout)) {
+            if (lockReservations == null) throw new IOException("Reservations file is locked: " + reservationsFile);
+            FileChannel fc = handle.channel();   // shared by this JVM - dont close it
+            List<Reservation> live = readLive(fc, System.currentTimeMillis());
+            int liveCount = live.size();
+            T result = action.apply(live);
+            if (live.size() != liveCount || fc.size() != (long) liveCount * RECORD_SIZE) writeAll(fc, live);
+            return result;
+        } // end try lock reservations
+    } // End update()
+
+    // Remove reservation if still there.  Returns false if it had already lapsed (or been removed).
+    public boolean remove(Reservation reservation, long timeout) throws InterruptedException, IOException {
+        return update(timeout, live -> live.remove(reservation));
+    } // End remove()
+
+    // reservations of the sidecar that have not lapsed by now
+    static List<Reservation> readLive(FileChannel fc, long now) throws IOException {
+        ByteBuffer bb = HighScoreFile.readBytes(fc);
+        List<Reservation> live = new ArrayList<>();
+        while (bb.remaining() >= RECORD_SIZE) {
+            Reservation reservation = new Reservation(bb.getLong(), bb.getInt(), bb.getLong());
+            if (reservation.lapsesAt > now) live.add(reservation);
+        }
+        return live;
+    } // End readLive()
+
+    static void writeAll(FileChannel fc, List<Reservation> reservations) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(reservations.size() * RECORD_SIZE);
+        for (Reservation reservation: reservations) {
+            bb.putLong(reservation.id);
+            bb.putInt(reservation.score);
+            bb.putLong(reservation.lapsesAt);
+        }
+        HighScoreFile.writeBytes(fc, bb.array(), 0);
+    } // End writeAll()
+
+    // scores of reservations, as nameless high scores to count against the cutoff
+    public static List<HighScore> asHighScores(List<Reservation> reservations) {
+        List<HighScore> scores = new ArrayList<>();
+        for (Reservation reservation: reservations) {
+            scores.add(new HighScore("", reservation.score));
+        }
+        return scores;
+    } // End asHighScores()
+
+
+    // ------------ Reservation class - one held place ----------------------------------------
+    public static class Reservation {
+        private final long id;
+        private final int score;
+        private final long lapsesAt;   // epoch millisecs
+
+        Reservation(long id, int score, long lapsesAt) {
+            this.id = id;
+            this.score = score;
+            this.lapsesAt = lapsesAt;
+        }
+
+        // new reservation for score, held for holdMillis
+        public static Reservation newReservation(int score, long holdMillis) {
+            return new Reservation(ThreadLocalRandom.current().nextLong(), score, System.currentTimeMillis() + holdMillis);
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public long getLapsesAt() {
+            return lapsesAt;
+        }
+
+        public boolean hasLapsed() {
+            return System.currentTimeMillis() >= lapsesAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Reservation) && ((Reservation) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    } // end class Reservation
+
+} // end class HighScoreReservations
@@ -0,0 +1,178 @@
+/* High Score Table class - columnar storage for very large high score boards.
+ - started 10.18.26
+ Rather than a HighScore object (with its ID, String and LocalDate) per entry, scores and epoch days
+ are kept in int arrays and names are stored once in a dictionary and referred to by int id.
+ asList() gives HighScore views made on demand, so displayHighScores and writeHighScoresToFile
+ work on a table just as on a List<HighScore>.
+*/
+
+package games;  // most games contain high scores
+import java.time.LocalDate;  // new Java8 date-time classes
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+// -------------------------------------------
+public class HighScoreTable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // instance variables
+    private int size = 0;
+    private int[] scores;
+    private int[] epochDays;
+    private int[] nameIds;
+    private final List<String> names = new ArrayList<>();              // name for each name id
+    private final Map<String, Integer> nameIndex = new HashMap<>();    // name id of each name
+
+    // HighScoreTable Constructors
+    public HighScoreTable( )  {
+        this(DEFAULT_CAPACITY);
+    } // end HighScoreTable constructor
+
+    public HighScoreTable(int capacity)  {
+        if (capacity < 0) throw new IllegalArgumentException("Illegal HighScoreTable capacity: " + capacity);
+        scores = new int[capacity];
+        epochDays = new int[capacity];
+        nameIds = new int[capacity];
+    } // end HighScoreTable constructor
+
+    public static HighScoreTable fromList(Collection<HighScore> highScores)  {
+        HighScoreTable table = new HighScoreTable(highScores.size());
+        table.addAll(highScores);
+        return table;
+    } // end fromList
+
+ // HighScoreTable getter and setters ------------------------------------------------------------
+ // ----------------------------------------------------------------------------------------------
+
+    public int size() {
+        return size;
+    }
+
+    public int getScore(int index) {
+        return scores[checkIndex(index)];
+    }
+
+    public int getEpochDay(int index) {
+        return epochDays[checkIndex(index)];
+    }
+
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(getEpochDay(index));
+    }
+
+    public int getNameId(int index) {
+        return nameIds[checkIndex(index)];
+    }
+
+    public String getName(int index) {
+        return names.get(getNameId(index));
+    }
+
+    // number of different names in the dictionary
+    public int getNameCount() {
+        return names.size();
+    }
+
+    // a new HighScore holding entry index
+    public HighScore get(int index) {
+        return new HighScore(getName(index), getScore(index), getDate(index));
+    }
+
+ // HighScoreTable non-get-set methods -----------------------------------------------------------
+ // ----------------------------------------------------------------------------------------------
+
+    public void add(String name, int score, LocalDate date) {
+        if (size == scores.length) grow();
+        scores[size] = score;
+        epochDays[size] = (int) date.toEpochDay();
+        nameIds[size] = internName(name);
+        size++;
+    } // End add()
+
+    public void add(HighScore hs) {
+        add(hs.getName(), hs.getScore(), hs.getDate());
+    } // End add()
+
+    public void addAll(Collection<HighScore> highScores) {
+        for (HighScore hs: highScores) add(hs);
+    } // End addAll()
+
+    // Drop entries past newSize (names stay in the dictionary).
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) throw new IndexOutOfBoundsException("Cant truncate to " + newSize);
+        size = newSize;
+    } // End truncate()
+
+    // Sort highest score first, equal scores staying in their current order (like Collections.sort).
+    // Sorts packed (score, index) longs, so no objects are created per entry.
+    public void sortByScore() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) ~scores[i] << 32) | i;   // ~score sorts highest score first
+        }
+        Arrays.sort(keys);
+        int[] newScores = new int[scores.length];
+        int[] newEpochDays = new int[epochDays.length];
+        int[] newNameIds = new int[nameIds.length];
+        for (int i = 0; i < size; i++) {
+            int from = (int) keys[i];
+            newScores[i] = scores[from];
+            newEpochDays[i] = epochDays[from];
+            newNameIds[i] = nameIds[from];
+        }
+        scores = newScores;
+        epochDays = newEpochDays;
+        nameIds = newNameIds;
+    } // End sortByScore()
+
+    // Read only view of the table as HighScores, each made when it is asked for.
+    public List<HighScore> asList() {
+        return new HighScoreView();
+    } // End asList()
+
+
+    // dictionary id of name, adding it if it is new
+    private int internName(String name) {
+        Integer id = nameIndex.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIndex.put(name, id);
+        }
+        return id;
+    } // End internName()
+
+    private void grow() {
+        int newCapacity = Math.max(DEFAULT_CAPACITY, scores.length + (scores.length >> 1));
+        scores = Arrays.copyOf(scores, newCapacity);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        nameIds = Arrays.copyOf(nameIds, newCapacity);
+    } // End grow()
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return index;
+    } // End checkIndex()
+
+
+    // ------------ HighScoreView class - List view of the table ---------------------------------
+    private class HighScoreView extends AbstractList<HighScore> implements RandomAccess {
+        @Override
+        public HighScore get(int index) {
+            return HighScoreTable.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    } // end class HighScoreView
+
+} // end class HighScoreTable
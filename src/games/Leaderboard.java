@@ -0,0 +1,113 @@
+/* Leaderboard class - bounded top K list of high scores.
+ - started 10.18.26
+ Replaces sorting a whole list and then removing entries past the maximum.  Entries are kept in a
+ heap with the worst entry on top, so adding a score is O(log K) and the cutoff score is O(1).
+ Ties keep the earliest added entry, just as a stable sort then trim does.
+*/
+
+package games;  // most games contain high scores
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// -------------------------------------------
+public class Leaderboard {
+
+    // worst entry first - lowest score, and for equal scores the latest added.
+    private static final Comparator<Entry> WORST_FIRST = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            int result = Integer.compare(a.highScore.getScore(), b.highScore.getScore());
+            return (result != 0) ? result : Long.compare(b.sequence, a.sequence);
+        }
+    };
+
+    // instance variables
+    private final int capacity;                  // most high scores kept
+    private final PriorityQueue<Entry> heap;     // worst entry at head
+    private long sequence = 0;                   // order entries were added, for ties
+
+    // Leaderboard Constructors
+    public Leaderboard(int capacity)  {
+        if (capacity < 1) throw new IllegalArgumentException("Leaderboard capacity must be at least 1: " + capacity);
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, WORST_FIRST);
+    } // end Leaderboard constructor
+
+    public Leaderboard(int capacity, Collection<HighScore> highScores)  {
+        this(capacity);
+        addAll(highScores);
+    } // end Leaderboard constructor
+
+ // Leaderboard methods ---------------------------------------------------------------------------
+ // -----------------------------------------------------------------------------------------------
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    public boolean isFull() {
+        return heap.size() >= capacity;
+    }
+
+    // Score a new score must beat to get on the board - 0 until the board is full.
+    public int getCutoffScore() {
+        return isFull() ? heap.peek().highScore.getScore() : 0;
+    }
+
+    // true if score would be kept if added now
+    public boolean qualifies(int score) {
+        return !isFull() || score > heap.peek().highScore.getScore();
+    }
+
+    // Add a high score, dropping the worst one if the board is full. Returns false if hs isnt kept.
+    public boolean add(HighScore hs) {
+        if (hs == null) throw new NullPointerException("Cant add null to Leaderboard.");
+        if (!qualifies(hs.getScore())) return false;
+        if (isFull()) heap.poll();
+        heap.add(new Entry(hs, sequence++));
+        return true;
+    } // End add()
+
+    public void addAll(Collection<HighScore> highScores) {
+        for (HighScore hs: highScores) add(hs);
+    } // End addAll()
+
+    public void clear() {
+        heap.clear();
+    }
+
+    // High scores highest first (equal scores in the order added), as a new modifiable list.
+    public List<HighScore> toList() {
+        List<Entry> entries = new ArrayList<>(heap);
+        Collections.sort(entries, Collections.reverseOrder(WORST_FIRST));
+        List<HighScore> highList = new ArrayList<>(entries.size());
+        for (Entry entry: entries) highList.add(entry.highScore);
+        return highList;
+    } // End toList()
+
+    // Best capacity high scores of a list, highest first.
+    public static List<HighScore> topOf(Collection<HighScore> highScores, int capacity) {
+        return new Leaderboard(capacity, highScores).toList();
+    } // End topOf()
+
+
+    // ------------ Leaderboard Entry class - high score and the order it was added --------------
+    private static class Entry {
+        final HighScore highScore;
+        final long sequence;
+
+        Entry(HighScore highScore, long sequence) {
+            this.highScore = highScore;
+            this.sequence = sequence;
+        }
+    } // end class Entry
+
+} // end class Leaderboard
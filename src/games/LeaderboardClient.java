@@ -0,0 +1,147 @@
+/* Leaderboard Client class - how a game talks to a LeaderboardServer.
+ - started 10.18.26
+ Submits scores to, and fetches the best scores of, a board on a server on this machine.  Each call
+ is one HTTP request; connections are kept open and reused between calls.  The async versions
+ return at once, so a game can have many submissions on their way without waiting for each reply.
+ Usage:
+     LeaderboardClient client = new LeaderboardClient(LeaderboardServer.DEFAULT_PORT);
+     List<HighScore> board = client.submit("RoidHighScores.txt", newHighs, 10);
+     List<HighScore> top = client.top("RoidHighScores.txt", 5);
+*/
+
+package games;  // most games contain high scores
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// -------------------------------------------
+public class LeaderboardClient {
+
+    static final int CONNECT_TIMEOUT = 2000;    // millisecs
+    static final int READ_TIMEOUT = 10000;      // millisecs
+    static final int ASYNC_CONNECTIONS = 5;     // the JDK keeps 5 idle connections per server (http.maxConnections)
+
+    // threads for the async calls - daemons so they never keep the game running.  A few threads
+    // each reusing their connection beat a connection per call, which floods the server's backlog.
+    private static final ExecutorService ASYNC = Executors.newFixedThreadPool(ASYNC_CONNECTIONS, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "LeaderboardClient");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    // instance variables
+    private final String host;
+    private final int port;
+
+  // ----------- LeaderboardClient Constructors -------------------
+  // ---------------------------------------------------------------
+
+    // client of the server on port of localhost
+    public LeaderboardClient(int port) {
+        this("127.0.0.1", port);
+    } // end LeaderboardClient constructor
+
+    public LeaderboardClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    } // end LeaderboardClient constructor
+
+ // LeaderboardClient getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public int getPort() {
+        return port;
+    }
+
+  // ----------- LeaderboardClient methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Save newHighs on board, keeping maxHighScores.  Returns the board once they are saved.
+    public List<HighScore> submit(String board, List<HighScore> newHighs, int maxHighScores) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (HighScore hs: newHighs) {
+            String name = (hs.getName() == null) ? "" : hs.getName().replace('\r', ' ').replace('\n', ' ');
+            body.append(hs.getScore()).append(' ').append(name).append('\n');
+        }
+        return request("POST", board, "max=" + maxHighScores, body.toString().getBytes(StandardCharsets.UTF_8));
+    } // End submit()
+
+    // best count high scores of board (none if the board has no file yet)
+    public List<HighScore> top(String board, int count) throws IOException {
+        return request("GET", board, "n=" + count, null);
+    } // End top()
+
+    public CompletableFuture<List<HighScore>> submitAsync(String board, List<HighScore> newHighs, int maxHighScores) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return submit(board, newHighs, maxHighScores);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ASYNC);
+    } // End submitAsync()
+
+    public CompletableFuture<List<HighScore>> topAsync(String board, int count) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return top(board, count);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ASYNC);
+    } // End topAsync()
+
+    private List<HighScore> request(String method, String board, String query, byte[] body) throws IOException {
+        URL url = new URL("http", host, port, LeaderboardServer.BOARDS_PATH
+                          + URLEncoder.encode(board, "UTF-8") + "?" + query);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT);
+        conn.setReadTimeout(READ_TIMEOUT);
+        conn.setRequestMethod(method);
+        if (body != null) {
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(body.length);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(body);
+            }
+        }
+        int status = conn.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_FOUND && body == null) {   // no file yet => no scores yet
+            readAll(conn.getErrorStream());   // fully read, so the connection is reused
+            return new ArrayList<>();
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IOException("Leaderboard server: " + status + " " + readAll(conn.getErrorStream()).trim());
+        }
+        try (InputStream is = conn.getInputStream()) {   // fully read and closed, so the connection is reused
+            return HighScoreFile.readHighScoresFromFile(is);
+        }
+    } // End request()
+
+    private static String readAll(InputStream is) throws IOException {
+        if (is == null) return "";
+        try (InputStream in = is) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = in.read(buf)) != -1) bytes.write(buf, 0, n);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    } // End readAll()
+
+} // end class LeaderboardClient
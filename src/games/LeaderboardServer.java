@@ -0,0 +1,267 @@
+/* Leaderboard Server class - one process that owns the high score files, for games to talk to.
+ - started 10.18.26
+ Rather than every game process locking the high score file, games send their scores to this
+ server over HTTP on localhost (see LeaderboardClient, and HighScoreProcessor.setServerMode), and
+ only the server reads and writes the files.  Each board is a file in the server's directory, kept
+ in memory as a Leaderboard.  Scores sent at the same time are saved with one write (a group
+ commit): whichever request writes next writes every score merged so far, and the requests it
+ covered need not write again.  Files are replaced whole (HighScoreFile.publishHighScores), so
+ programs reading the file directly never see half a write.
+ Requests - board names are file names in the directory, of letters, digits, '.', '_' and '-', but
+ never a sidecar kept beside a board (such as <board>.seq or <board>.journal), so those cant be
+ overwritten through the server:
+     GET  /boards/<board>?n=<count>       best count high scores (all kept if no n) - 404 if no such file
+     POST /boards/<board>?max=<kept>      body "score name" lines - saves them (making the file if
+                                          need be), returns the board
+ Boards are sent back in the high score file format.  Requests on one connection can be sent
+ without waiting for the replies (HTTP keep-alive), and many connections are served at once.
+ Run with: java games.LeaderboardServer [directory] [port]
+*/
+
+package games;  // most games contain high scores
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// -------------------------------------------
+public class LeaderboardServer {
+
+    public static final int DEFAULT_PORT = 47474;
+    static final String BOARDS_PATH = "/boards/";
+    static final int BACKLOG = 128;             // connections waiting to be accepted
+    static final Pattern BOARD_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    // files kept beside high score files (and publishHighScores' temp files) - never boards
+    static final String[] SIDECAR_SUFFIXES = { HighScoreFileStamp.SEQUENCE_SUFFIX, HighScoreJournal.JOURNAL_SUFFIX,
+                                               HighScoreProcessor.LOCK_SUFFIX, HighScoreRankIndex.RANKS_SUFFIX,
+                                               HighScoreRankIndex.SNAPSHOT_SUFFIX,
+                                               HighScoreReservations.RESERVATIONS_SUFFIX, ".tmp" };
+
+    // instance variables
+    private final File directory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ConcurrentMap<String, Board> boards = new ConcurrentHashMap<>();
+
+  // ----------- LeaderboardServer Constructors -------------------
+  // ---------------------------------------------------------------
+
+    // Server for the boards in directory, on port of localhost only (0 => any free port).
+    // Call start() to begin serving.
+    public LeaderboardServer(File directory, int port) throws IOException {
+        if (!directory.isDirectory()) throw new IOException("Not a directory: " + directory);
+        this.directory = directory;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "LeaderboardServer-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext(BOARDS_PATH, this::handle);
+    } // end LeaderboardServer constructor
+
+ // LeaderboardServer getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+  // ----------- LeaderboardServer methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException {
+        File directory = new File((args.length > 0) ? args[0] : ".");
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        LeaderboardServer leaderboardServer = new LeaderboardServer(directory, port);
+        leaderboardServer.start();
+        System.out.println("LeaderboardServer: serving " + directory.getCanonicalPath() + " on localhost port "
+                           + leaderboardServer.getPort());
+    } // end main
+
+    public void start() {
+        server.start();
+    } // End start()
+
+    // Stop serving, letting requests already being served finish (up to delaySeconds).
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    } // End stop()
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            URI uri = exchange.getRequestURI();
+            String name = uri.getPath().substring(BOARDS_PATH.length());
+            if (!isBoardName(name)) {
+                reply(exchange, 404, "No such board: " + name);
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            if (method.equals("GET")) {
+                int count = queryInt(uri, "n", Integer.MAX_VALUE);
+                if (!boards.containsKey(name) && !new File(directory, name).isFile()) {   // dont keep a board for it
+                    reply(exchange, 404, "No such board: " + name);
+                    return;
+                }
+                List<HighScore> top = getBoard(name, 0).top(count);
+                reply(exchange, 200, HighScoreFile.toBytes(top));
+            } else if (method.equals("POST")) {
+                int max = queryInt(uri, "max", HighScoreProcessor.MAX_HIGH_SCORES);
+                List<HighScore> newHighs = readScores(exchange);
+                reply(exchange, 200, HighScoreFile.toBytes(getBoard(name, max).save(newHighs)));
+            } else {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                reply(exchange, 405, "Use GET or POST");
+            }
+        } catch (IllegalArgumentException e) {   // bad query or score
+            reply(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            reply(exchange, 500, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    } // End handle()
+
+    // true if name can be a board - a plain file name that isnt a sidecar of another board
+    static boolean isBoardName(String name) {
+        if (!BOARD_NAME.matcher(name).matches()) return false;
+        for (String suffix: SIDECAR_SUFFIXES) {
+            if (name.endsWith(suffix)) return false;
+        }
+        return true;
+    } // End isBoardName()
+
+    // board called name, loaded from its file the first time - keeping at least max high scores
+    private Board getBoard(String name, int max) throws Exception {
+        Board board = boards.get(name);
+        if (board == null) {
+            Board newBoard = new Board(new File(directory, name));
+            board = boards.putIfAbsent(name, newBoard);
+            if (board == null) board = newBoard;
+        }
+        board.load(max);
+        return board;
+    } // End getBoard()
+
+    // "score name" lines of the request body
+    static List<HighScore> readScores(HttpExchange exchange) throws IOException {
+        List<HighScore> newHighs = new ArrayList<>();
+        BufferedReader br = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.isEmpty()) continue;
+            int space = line.indexOf(' ');
+            if (space < 0) throw new IllegalArgumentException("Expected \"score name\": " + line);
+            newHighs.add(new HighScore(line.substring(space + 1), Integer.parseInt(line.substring(0, space))));
+        }
+        return newHighs;
+    } // End readScores()
+
+    static int queryInt(URI uri, String key, int defaultValue) {
+        String query = uri.getQuery();
+        if (query == null) return defaultValue;
+        for (String pair: query.split("&")) {
+            if (pair.startsWith(key + "=")) {
+                int value = Integer.parseInt(pair.substring(key.length() + 1));
+                if (value < 1) throw new IllegalArgumentException(key + " must be positive: " + value);
+                return value;
+            }
+        }
+        return defaultValue;
+    } // End queryInt()
+
+    static void reply(HttpExchange exchange, int status, String message) throws IOException {
+        reply(exchange, status, (message + "\n").getBytes(StandardCharsets.UTF_8));
+    } // End reply()
+
+    static void reply(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, (body.length == 0) ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    } // End reply()
+
+
+    // ------------ Board class - one high score file and its board in memory -------------------
+    static class Board {
+        private final File file;
+        private Leaderboard leaderboard = null;     // null until loaded
+        private long changes = 0;                   // saves merged into leaderboard
+        private long written = 0;                   // saves in the file
+        private final Object writeLock = new Object();
+
+        Board(File file) {
+            this.file = file;
+        }
+
+        // Load the file the first time, and keep at least max high scores from now on.
+        synchronized void load(int max) throws Exception {
+            if (leaderboard == null) {
+                List<HighScore> fileScores = file.exists() ? HighScoreFile.readHighScoresFromFile(file)
+                                                           : new ArrayList<HighScore>();
+                leaderboard = new Leaderboard(Math.max(max, Math.max(fileScores.size(), 1)), fileScores);
+            } else if (max > leaderboard.getCapacity()) {
+                leaderboard = new Leaderboard(max, leaderboard.toList());
+            }
+        } // End load()
+
+        synchronized List<HighScore> top(int count) {
+            List<HighScore> board = leaderboard.toList();
+            return (board.size() <= count) ? board : new ArrayList<>(board.subList(0, count));
+        } // End top()
+
+        // Merge newHighs into the board, and return once they are in the file (group commit).
+        List<HighScore> save(List<HighScore> newHighs) throws IOException {
+            long mine;
+            synchronized (this) {
+                leaderboard.addAll(newHighs);
+                mine = ++changes;
+            }
+            synchronized (writeLock) {
+                if (written < mine) {   // not yet written by another request's write
+                    List<HighScore> board;
+                    long upTo;
+                    synchronized (this) {
+                        board = leaderboard.toList();
+                        upTo = changes;
+                    }
+                    HighScoreFile.publishHighScores(board, file);
+                    HighScoreFileStamp.bumpSequence(file);   // readers caching the file re-read it
+                    written = upTo;
+                }
+            }
+            synchronized (this) {
+                return leaderboard.toList();
+            }
+        } // End save()
+    } // end class Board
+
+} // end class LeaderboardServer
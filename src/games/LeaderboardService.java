@@ -0,0 +1,290 @@
+/* Leaderboard Service class - one service for the high score boards of many games.
+ - started 10.18.26
+ Rather than a HighScoreProcessor thread per game, boards (HighScoreClassInfo) are registered with
+ the service and hashed by file onto a fixed pool of shards, one per core by default.  Each shard is
+ a thread with its own queue, and owns its boards - their processors, files and in-memory scores are
+ only touched by that shard's thread, so shards never lock each other out.  A shard takes all the
+ scores waiting in its queue and saves each board's share with a single lock-read-merge-write.
+ Scores come with their names, so nothing is asked of the user - the service runs headless.
+ Usage:
+     LeaderboardService service = new LeaderboardService();
+     LeaderboardService.Board board = service.register(gameInfo);
+     service.submit(board, "Mike", 1234);
+     ...
+     service.shutdown();
+*/
+
+package games;  // most games contain high scores
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// -------------------------------------------
+public class LeaderboardService {
+
+    static final int MAX_DRAIN = 1024;        // most queued scores a shard takes at once
+
+    // instance variables
+    private final Shard[] shards;
+    private final ConcurrentMap<String, Board> boards = new ConcurrentHashMap<>();   // by canonical path
+    private boolean shutdown = false;                // guarded by queueLock
+    private final Object queueLock = new Object();   // held to check shutdown and queue as one step
+
+  // ----------- LeaderboardService Constructors -------------------
+  // ---------------------------------------------------------------
+
+    public LeaderboardService() {
+        this(Runtime.getRuntime().availableProcessors());
+    } // end LeaderboardService constructor
+
+    public LeaderboardService(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("Need at least 1 shard: " + shardCount);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+            shards[i].start();
+        }
+    } // end LeaderboardService constructor
+
+ // LeaderboardService getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // scores waiting in the shard's queue
+    public int getQueueDepth(int shard) {
+        return shards[shard].queue.size();
+    }
+
+    public int getBoardCount(int shard) {
+        return shards[shard].boardCount;
+    }
+
+    public long getProcessedScores(int shard) {
+        return shards[shard].processedScores;
+    }
+
+    // board saves that failed with an unexpected exception (and were logged) - the shard carries on
+    public long getFailedSaves(int shard) {
+        return shards[shard].failedSaves;
+    }
+
+    // scores processed per second since the shard started
+    public double getScoresPerSecond(int shard) {
+        double seconds = (System.nanoTime() - shards[shard].startNanos) / 1e9;
+        return (seconds <= 0) ? 0.0 : shards[shard].processedScores / seconds;
+    }
+
+    // fraction of time the shard spent saving rather than waiting for scores
+    public double getBusyFraction(int shard) {
+        long elapsed = System.nanoTime() - shards[shard].startNanos;
+        return (elapsed <= 0) ? 0.0 : (double) shards[shard].busyNanos / elapsed;
+    }
+
+  // ----------- LeaderboardService methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Register a game's board, or get the board already registered for the same file.
+    // The board's scores are loaded from its file by its shard, shortly after.
+    public Board register(HighScoreClassInfo info) throws IOException {
+        File file = new File(HighScoreFile.getClassPath(info), info.getHighScoreFileName());
+        String path = file.getCanonicalPath();
+        Board board = boards.get(path);
+        if (board != null) return board;
+        Board newBoard = new Board(info, path, shards[Math.floorMod(path.hashCode(), shards.length)]);
+        synchronized (queueLock) {
+            if (shutdown) throw new IllegalStateException("LeaderboardService is shut down.");
+            board = boards.putIfAbsent(path, newBoard);
+            if (board != null) return board;
+            newBoard.shard.queue.add(new Submission(newBoard, null, 0));   // load it on the shard's thread
+        }
+        return newBoard;
+    } // End register()
+
+    // Queue a score for board - returns at once, the score is saved later by the board's shard.
+    // Throws IllegalStateException once shutdown has begun - a score is never queued behind a shard's STOP.
+    public void submit(Board board, String name, int score) {
+        synchronized (queueLock) {
+            if (shutdown) throw new IllegalStateException("LeaderboardService is shut down.");
+            board.shard.queue.add(new Submission(board, name, score));
+        }
+    } // End submit()
+
+    // One line per shard: boards, queue depth and throughput.
+    public String getStatsReport() {
+        StringBuilder report = new StringBuilder();
+        for (int i = 0; i < shards.length; i++) {
+            report.append(String.format("shard %d: %d boards, queue %d, %d scores, %.1f scores/sec, %.1f%% busy%n",
+                          i, getBoardCount(i), getQueueDepth(i), getProcessedScores(i),
+                          getScoresPerSecond(i), 100 * getBusyFraction(i)));
+        }
+        return report.toString();
+    } // End getStatsReport()
+
+    // Save every score already submitted, then stop the shards and close their boards' processors.
+    public void shutdown() throws InterruptedException {
+        synchronized (queueLock) {   // no submission can slip in between the check and its queue
+            shutdown = true;
+            for (Shard shard: shards) shard.queue.add(Submission.STOP);
+        }
+        for (Shard shard: shards) shard.join();
+        for (Board board: boards.values()) {
+            if (board.processor != null) board.processor.close();
+        }
+    } // End shutdown()
+
+
+    // ------------ Board class - a registered game's high score board ------------------------
+    public static class Board {
+        private final HighScoreClassInfo info;
+        private final String path;
+        private final Shard shard;
+        private HighScoreProcessor processor = null;                        // shard thread only
+        private volatile List<HighScore> highScores = Collections.emptyList();
+
+        private Board(HighScoreClassInfo info, String path, Shard shard) {
+            this.info = info;
+            this.path = path;
+            this.shard = shard;
+        }
+
+        public HighScoreClassInfo getInfo() {
+            return info;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getShard() {
+            return shard.index;
+        }
+
+        // board as of the last batch saved by its shard
+        public List<HighScore> getHighScores() {
+            return highScores;
+        }
+    } // end class Board
+
+
+    // ------------ Submission class - a score waiting in a shard's queue ----------------------
+    private static class Submission {
+        static final Submission STOP = new Submission(null, null, 0);
+        final Board board;
+        final String name;     // null => just load the board
+        final int score;
+
+        Submission(Board board, String name, int score) {
+            this.board = board;
+            this.name = name;
+            this.score = score;
+        }
+    } // end class Submission
+
+
+    // ------------ Shard class - worker thread owning some of the boards ----------------------
+    private static class Shard extends Thread {
+        final int index;
+        final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+        final long startNanos = System.nanoTime();
+        volatile int boardCount = 0;
+        volatile long processedScores = 0;   // written only by this shard's thread
+        volatile long busyNanos = 0;
+        volatile long failedSaves = 0;       // written only by this shard's thread
+
+        Shard(int index) {
+            super("LeaderboardService-shard-" + index);
+            this.index = index;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Submission> batch = new ArrayList<>();
+            boolean stopping = false;
+            while (!stopping) {
+                batch.clear();
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();  // allow interrupt to occur.
+                    return;
+                }
+                queue.drainTo(batch, MAX_DRAIN - 1);
+                long start = System.nanoTime();
+                stopping = saveBatch(batch);
+                busyNanos += System.nanoTime() - start;
+            } // end while !stopping
+        } // end run
+
+        // Save a batch, one lock-read-merge-write per board.  Returns true if told to stop.
+        private boolean saveBatch(List<Submission> batch) {
+            boolean stopping = false;
+            int scores = 0;
+            Map<Board, List<HighScore>> byBoard = new LinkedHashMap<>();
+            for (Submission submission: batch) {
+                if (submission == Submission.STOP) {
+                    stopping = true;
+                    continue;
+                }
+                List<HighScore> newHighs = byBoard.get(submission.board);
+                if (newHighs == null) {
+                    newHighs = new ArrayList<>();
+                    byBoard.put(submission.board, newHighs);
+                }
+                if (submission.name != null) {
+                    newHighs.add(new HighScore(submission.name, submission.score));
+                    scores++;
+                }
+            } // end for batch
+            for (Map.Entry<Board, List<HighScore>> entry: byBoard.entrySet()) {
+                try {
+                    saveBoard(entry.getKey(), entry.getValue());
+                } catch (RuntimeException e) {   // one bad board mustnt stop the shard saving the others
+                    failedSaves++;
+                    System.out.println("LeaderboardService: shard " + index + " failed to save " + entry.getKey().path
+                                       + " - " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+            processedScores += scores;
+            return stopping;
+        } // End saveBatch()
+
+        private void saveBoard(Board board, List<HighScore> newHighs) {
+            HighScoreProcessor processor = board.processor;
+            if (processor == null) {
+                processor = new HighScoreProcessor(board.info, null);   // reads the file, or the defaults
+                processor.setQueryUser(false);
+                board.processor = processor;
+                boardCount++;
+            }
+            // only scores that beat the current cutoff need the file locked
+            List<HighScore> current = processor.reReadHighScores(processor.file);
+            List<HighScore> candidates = new ArrayList<>();
+            int lowScore = (current.size() < processor.getMaxHighScores()) ? 0
+                           : current.get(current.size() - 1).getScore();
+            for (HighScore hs: newHighs) {
+                if (hs.getScore() > lowScore) candidates.add(hs);
+            }
+            if (!candidates.isEmpty()) {
+                String reason = processor.canReadWriteFile ? processor.saveHighScoresToFile(candidates, "")
+                                                           : " because the file can't be read and written";
+                if (HighScoreProcessor.savedOnlyLocally(reason)) processor.saveHighScoresLocally(candidates);
+            } else {
+                processor.highScores = current;
+            }
+            board.highScores = Collections.unmodifiableList(new ArrayList<>(processor.getHighScores()));
+        } // End saveBoard()
+    } // end class Shard
+
+} // end class LeaderboardService
@@ -0,0 +1,141 @@
+/* Windowed Leaderboards class - daily, weekly, monthly and all-time boards, kept as scores arrive.
+ - started 10.18.26
+ Each day's best scores go in a day bucket (a Leaderboard), in a ring of the last MONTH_DAYS days
+ indexed by epoch day.  A bucket left over from an older day is cleared when its slot is reused, so
+ days expire as the date rolls over with no sweeping.  Adding a score touches only its day's bucket
+ and the all-time board - O(log K).  A week or month board is the best K of its day buckets,
+ merged when asked for and cached until the next score arrives (or the day changes).
+ Windows end today and are counted in days: the weekly board covers the last 7 days, the monthly
+ the last 30.  Ties keep the earlier day's score first, then the earlier added, as Leaderboard does.
+*/
+
+package games;  // most games contain high scores
+import java.time.Clock;
+import java.time.LocalDate;  // new Java8 date-time classes
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// -------------------------------------------
+public class WindowedLeaderboards {
+
+    public static final int DAY_DAYS = 1;
+    public static final int WEEK_DAYS = 7;
+    public static final int MONTH_DAYS = 30;    // also the days kept in the ring - the longest window
+
+    // instance variables
+    private final int capacity;                 // high scores kept per board
+    private final Clock clock;                  // says what today is
+    private final Leaderboard[] buckets = new Leaderboard[MONTH_DAYS];
+    private final long[] bucketDays = new long[MONTH_DAYS];       // epoch day each bucket holds
+    private final Leaderboard allTime;
+    private final Map<Integer, List<HighScore>> cache = new HashMap<>();   // merged boards by days
+    private long cacheDay = Long.MIN_VALUE;     // epoch day the cache was made on
+
+  // ----------- WindowedLeaderboards Constructors -------------------
+  // ---------------------------------------------------------------
+
+    public WindowedLeaderboards(int capacity) {
+        this(capacity, Clock.systemDefaultZone());
+    } // end WindowedLeaderboards constructor
+
+    public WindowedLeaderboards(int capacity, Clock clock) {
+        if (capacity < 1) throw new IllegalArgumentException("Board capacity must be at least 1: " + capacity);
+        this.capacity = capacity;
+        this.clock = clock;
+        this.allTime = new Leaderboard(capacity);
+        for (int i = 0; i < MONTH_DAYS; i++) {
+            buckets[i] = new Leaderboard(capacity);
+            bucketDays[i] = Long.MIN_VALUE;   // holds no day yet
+        }
+    } // end WindowedLeaderboards constructor
+
+ // WindowedLeaderboards getter and setters ----------------------------
+ // ---------------------------------------------------------
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public List<HighScore> getDaily() {
+        return getBoard(DAY_DAYS);
+    }
+
+    public List<HighScore> getWeekly() {
+        return getBoard(WEEK_DAYS);
+    }
+
+    public List<HighScore> getMonthly() {
+        return getBoard(MONTH_DAYS);
+    }
+
+    public synchronized List<HighScore> getAllTime() {
+        return allTime.toList();
+    }
+
+  // ----------- WindowedLeaderboards methods ---------------------------------
+  // ---------------------------------------------------------------
+
+    // Add a high score to the boards of its date.  Returns false if it makes none of them (including
+    // a score dated before the oldest day kept, which only the all-time board can take).
+    public synchronized boolean add(HighScore hs) {
+        boolean kept = allTime.add(hs);
+        long day = hs.getDate().toEpochDay();
+        long today = today();
+        if (day <= today && day > today - MONTH_DAYS) {
+            int slot = slot(day);
+            if (bucketDays[slot] != day) {   // slot still holds an expired day - reuse it
+                buckets[slot].clear();
+                bucketDays[slot] = day;
+            }
+            if (buckets[slot].add(hs)) kept = true;
+        }
+        if (kept) cache.clear();
+        return kept;
+    } // End add()
+
+    public synchronized void addAll(List<HighScore> highScores) {
+        for (HighScore hs: highScores) add(hs);
+    } // End addAll()
+
+    // true if a score made today would make the daily board (and so every longer one too)
+    public synchronized boolean qualifies(int score) {
+        long today = today();
+        int slot = slot(today);
+        return bucketDays[slot] != today || buckets[slot].qualifies(score);
+    } // End qualifies()
+
+    // Best capacity high scores of the last days days (1 => just today), highest first.
+    // Merged from the day buckets the first time it is asked for after a score or a new day.
+    public synchronized List<HighScore> getBoard(int days) {
+        if (days < 1 || days > MONTH_DAYS) {
+            throw new IllegalArgumentException("Boards cover 1 to " + MONTH_DAYS + " days: " + days);
+        }
+        long today = today();
+        if (today != cacheDay) {   // the windows have moved on
+            cache.clear();
+            cacheDay = today;
+        }
+        List<HighScore> board = cache.get(days);
+        if (board == null) {
+            Leaderboard merged = new Leaderboard(capacity);
+            for (long day = today - days + 1; day <= today; day++) {   // oldest first, so ties keep it first
+                int slot = slot(day);
+                if (bucketDays[slot] == day) merged.addAll(buckets[slot].toList());
+            }
+            board = merged.toList();
+            cache.put(days, board);
+        }
+        return new ArrayList<>(board);   // a copy, callers may change it
+    } // End getBoard()
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    } // End today()
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) MONTH_DAYS);
+    } // End slot()
+
+} // end class WindowedLeaderboards